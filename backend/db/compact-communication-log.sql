@@ -0,0 +1,70 @@
+-- One-off Postgres migration to the compact communication_log encoding.
+-- Run once before deploying the version that maps status as smallint, vendor_message_id as uuid
+-- and failure reasons through the failure_reason code table (ddl-auto=update does not change column types).
+--   psql "$DB_URL" -f db/compact-communication-log.sql
+
+-- size before
+select relname, pg_size_pretty(pg_table_size(oid)) as table_size, pg_size_pretty(pg_indexes_size(oid)) as index_size
+from pg_class where relname in ('communication_log', 'communication_log_archive');
+
+begin;
+
+create table if not exists failure_reason (
+    id smallserial primary key,
+    text varchar(255) not null unique
+);
+
+insert into failure_reason (text)
+select distinct failure_reason from communication_log where failure_reason is not null
+on conflict (text) do nothing;
+
+-- hot table
+alter table communication_log drop constraint if exists communication_log_status_check;
+alter table communication_log add column failure_reason_id smallint references failure_reason (id);
+update communication_log l set failure_reason_id = r.id from failure_reason r where r.text = l.failure_reason;
+alter table communication_log drop column failure_reason;
+alter table communication_log
+    alter column status type smallint using case status
+        when 'PENDING' then 0 when 'SENT' then 1 when 'FAILED' then 2 when 'DEAD' then 3 when 'SUPPRESSED' then 4 end,
+    alter column vendor_message_id type uuid using vendor_message_id::uuid;
+create index if not exists idx_comm_log_vendor_message_id on communication_log (vendor_message_id);
+
+-- archive: converted in place where the log-archiving version created it; a database upgraded from
+-- before that has no archive yet, so it is created here in the compact form the application maps
+do $$
+begin
+    if to_regclass('communication_log_archive') is null then
+        create table communication_log_archive (
+            id bigint not null primary key,
+            campaign_id bigint not null,
+            customer_id bigint not null,
+            status smallint,
+            vendor_message_id uuid,
+            failure_reason_id smallint,
+            updated_at timestamp(6)
+        );
+        create index idx_comm_log_archive_campaign on communication_log_archive (campaign_id);
+    else
+        insert into failure_reason (text)
+        select distinct failure_reason from communication_log_archive where failure_reason is not null
+        on conflict (text) do nothing;
+        alter table communication_log_archive drop constraint if exists communication_log_archive_status_check;
+        alter table communication_log_archive add column failure_reason_id smallint;
+        update communication_log_archive l set failure_reason_id = r.id from failure_reason r where r.text = l.failure_reason;
+        alter table communication_log_archive drop column failure_reason;
+        alter table communication_log_archive
+            alter column status type smallint using case status
+                when 'PENDING' then 0 when 'SENT' then 1 when 'FAILED' then 2 when 'DEAD' then 3 when 'SUPPRESSED' then 4 end,
+            alter column vendor_message_id type uuid using vendor_message_id::uuid;
+    end if;
+end $$;
+
+commit;
+
+-- rewrite both tables to reclaim the space of the dropped text column
+vacuum full analyze communication_log;
+vacuum full analyze communication_log_archive;
+
+-- size after
+select relname, pg_size_pretty(pg_table_size(oid)) as table_size, pg_size_pretty(pg_indexes_size(oid)) as index_size
+from pg_class where relname in ('communication_log', 'communication_log_archive');
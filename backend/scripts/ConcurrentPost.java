@@ -0,0 +1,49 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Fires N identical JSON POSTs at once from one process and prints "<ok> <elapsed ms>".
+// One JVM instead of N curl processes, so on a small machine the client is not what is being measured.
+// Usage: java scripts/ConcurrentPost.java <url> <n> <json body>
+public class ConcurrentPost {
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args[0]);
+        int n = Integer.parseInt(args[1]);
+        HttpRequest req = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(args[2]))
+                .build();
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        // warm the client up so connection setup code is not part of the first burst
+        client.send(HttpRequest.newBuilder(uri.resolve("/api/public/health")).build(), HttpResponse.BodyHandlers.discarding());
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> calls = new ArrayList<>(n);
+        long start;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < n; i++) {
+                calls.add(executor.submit(() -> {
+                    go.await();
+                    return client.send(req, HttpResponse.BodyHandlers.discarding()).statusCode();
+                }));
+            }
+            start = System.nanoTime();
+            go.countDown();
+        }
+        long ms = (System.nanoTime() - start) / 1_000_000;
+        int ok = 0;
+        for (Future<Integer> f : calls) {
+            try {
+                if (f.get() == 200) ok++;
+            } catch (Exception ignored) {
+            }
+        }
+        System.out.println(ok + " " + ms);
+    }
+}
@@ -0,0 +1,38 @@
+#!/usr/bin/env bash
+# Concurrency under a slow upstream: fires CONCURRENCY simultaneous /api/ai/suggest-messages requests while
+# the AI upstream (the built-in mock) takes LATENCY_MS per call, once on platform threads (Tomcat's 200)
+# and once on virtual threads. Platform threads need about ceil(CONCURRENCY/200) x LATENCY_MS of wall
+# time; virtual threads about one LATENCY_MS. /api/ai/** needs no login; placeholder Google credentials
+# only satisfy the OAuth client registration at startup.
+# Needs DB_URL/DB_USERNAME/DB_PASSWORD. Usage: scripts/slow-upstream-load.sh [concurrency] [latencyMs]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+CONCURRENCY=${1:-1000}
+LATENCY_MS=${2:-1000}
+PORT=${PORT:-18080}
+MOCK_PORT=${MOCK_PORT:-19090}
+
+./mvnw -q -DskipTests package
+JAR=target/crm-0.0.1-SNAPSHOT.jar
+
+run() {
+  local label=$1 virtual=$2 pid ms ok
+  GOOGLE_CLIENT_ID=load-test GOOGLE_CLIENT_SECRET=load-test GROQ_API_KEY=load-test GROQ_API_URL="http://localhost:$MOCK_PORT/chat/completions" \
+  VIRTUAL_THREADS=$virtual MOCK_VENDOR_PORT=$MOCK_PORT \
+    java -jar "$JAR" --server.port="$PORT" --server.tomcat.accept-count="$CONCURRENCY" \
+         --app.vendor.mock.minLatencyMs="$LATENCY_MS" --app.vendor.mock.maxLatencyMs="$LATENCY_MS" \
+         --groq.api.timeoutMs=$((LATENCY_MS * 20)) >"target/load-$label.log" 2>&1 &
+  pid=$!
+  until curl -sf "http://localhost:$PORT/api/public/health" >/dev/null; do
+    kill -0 "$pid" 2>/dev/null || { echo "$label: app exited, see target/load-$label.log"; exit 1; }
+    sleep 0.2
+  done
+  # warm-up burst so the measured one runs JIT-compiled code with open upstream connections
+  java scripts/ConcurrentPost.java "http://localhost:$PORT/api/ai/suggest-messages" "$CONCURRENCY" '{"objective":"10% off"}' >/dev/null
+  read -r ok ms < <(java scripts/ConcurrentPost.java "http://localhost:$PORT/api/ai/suggest-messages" "$CONCURRENCY" '{"objective":"10% off"}')
+  echo "$label: $ok/$CONCURRENCY ok in ${ms} ms (upstream latency ${LATENCY_MS} ms)"
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+}
+
+run platform false
+run virtual true
@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+# Time to first request (launch -> first 200 from /api/public/health) for the plain jar and for the
+# fast-start mode (AOT build + CDS archive + "fast" profile), as the median of several cold starts.
+# Needs DB_URL/DB_USERNAME/DB_PASSWORD, and GOOGLE_CLIENT_ID/GOOGLE_CLIENT_SECRET for the fast mode.
+# Usage: scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+JAR=crm-0.0.1-SNAPSHOT.jar
+
+measure() {
+  local label=$1; shift
+  local times=()
+  for _ in $(seq "$RUNS"); do
+    local start pid
+    start=$(date +%s%N)
+    "$@" --server.port="$PORT" >"target/startup-$label.log" 2>&1 &
+    pid=$!
+    until curl -sf "http://localhost:$PORT/api/public/health" >/dev/null; do
+      kill -0 "$pid" 2>/dev/null || { echo "$label: app exited, see target/startup-$label.log"; exit 1; }
+      sleep 0.05
+    done
+    times+=($(( ($(date +%s%N) - start) / 1000000 )))
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+  done
+  local median
+  median=$(printf '%s\n' "${times[@]}" | sort -n | sed -n "$(( (RUNS + 1) / 2 ))p")
+  echo "$label: median ${median} ms to first request (runs: ${times[*]})"
+}
+
+./mvnw -q -DskipTests package
+cp "target/$JAR" target/baseline.jar
+measure baseline java -jar target/baseline.jar
+
+# AOT processing starts the app once, so its log goes to a file instead of between the results
+./mvnw -q -DskipTests -Pfast-start package >target/startup-aot-build.log 2>&1 \
+  || { cat target/startup-aot-build.log; exit 1; }
+rm -rf target/fast
+java -Djarmode=tools -jar "target/$JAR" extract --destination target/fast
+FAST=(-Dspring.aot.enabled=true -Dspring.profiles.active=fast)
+java -XX:ArchiveClassesAtExit=target/fast/app.jsa -Dspring.context.exit=onRefresh "${FAST[@]}" \
+     -jar "target/fast/$JAR" >target/startup-training.log 2>&1
+measure fast java -XX:SharedArchiveFile=target/fast/app.jsa "${FAST[@]}" -jar "target/fast/$JAR"
@@ -1,13 +1,30 @@
 package com.crm.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class AppBeans {
+    // One shared JDK client: pooled keep-alive connections, HTTP/2 where the server supports it
     @Bean
-    public RestTemplate restTemplate() { return new RestTemplate(); }
-}
-
+    public HttpClient httpClient(@Value("${app.http.connectTimeoutMs:2000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+    }
 
+    @Bean
+    public RestTemplate restTemplate(HttpClient httpClient,
+                                     @Value("${app.http.readTimeoutMs:5000}") long readTimeoutMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        return new RestTemplate(factory);
+    }
+}
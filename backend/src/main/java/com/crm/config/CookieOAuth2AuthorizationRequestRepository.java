@@ -0,0 +1,98 @@
+package com.crm.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Keeps the pending OAuth2 authorization request in a short-lived signed cookie instead of the
+ * HTTP session, so the redirect to Google and the callback may be served by different replicas.
+ * The signature is checked before anything is deserialized.
+ */
+public class CookieOAuth2AuthorizationRequestRepository implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+    public static final String COOKIE = "crm_oauth2_req";
+    private static final Duration MAX_AGE = Duration.ofMinutes(5);
+    private static final int MAC_LENGTH = 32;
+
+    private final TokenService tokens;
+    private final boolean secureCookies;
+
+    public CookieOAuth2AuthorizationRequestRepository(TokenService tokens, boolean secureCookies) {
+        this.tokens = tokens;
+        this.secureCookies = secureCookies;
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+        String state = request.getParameter(OAuth2ParameterNames.STATE);
+        if (state == null) return null;
+        OAuth2AuthorizationRequest stored = TokenAuthenticationFilter.cookie(request, COOKIE).map(this::decode).orElse(null);
+        return stored != null && state.equals(stored.getState()) ? stored : null;
+    }
+
+    @Override
+    public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest,
+                                         HttpServletRequest request, HttpServletResponse response) {
+        if (authorizationRequest == null) {
+            setCookie(response, "", Duration.ZERO);
+            return;
+        }
+        setCookie(response, encode(authorizationRequest), MAX_AGE);
+    }
+
+    @Override
+    public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request, HttpServletResponse response) {
+        OAuth2AuthorizationRequest stored = loadAuthorizationRequest(request);
+        if (stored != null) setCookie(response, "", Duration.ZERO);
+        return stored;
+    }
+
+    // The callback is a top-level navigation from the provider, which SameSite=Lax cookies accompany
+    private void setCookie(HttpServletResponse response, String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(COOKIE, value)
+                .httpOnly(true)
+                .secure(secureCookies)
+                .sameSite("Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private String encode(OAuth2AuthorizationRequest authorizationRequest) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(authorizationRequest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        byte[] signed = Arrays.copyOf(tokens.mac(payload), MAC_LENGTH + payload.length);
+        System.arraycopy(payload, 0, signed, MAC_LENGTH, payload.length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signed);
+    }
+
+    private OAuth2AuthorizationRequest decode(String value) {
+        try {
+            byte[] signed = Base64.getUrlDecoder().decode(value);
+            if (signed.length <= MAC_LENGTH) return null;
+            byte[] payload = Arrays.copyOfRange(signed, MAC_LENGTH, signed.length);
+            if (!MessageDigest.isEqual(Arrays.copyOf(signed, MAC_LENGTH), tokens.mac(payload))) return null;
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                return (OAuth2AuthorizationRequest) in.readObject();
+            }
+        } catch (IllegalArgumentException | IOException | ClassNotFoundException | ClassCastException e) {
+            return null;
+        }
+    }
+}
@@ -10,7 +10,9 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.savedrequest.NullRequestCache;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -38,6 +40,19 @@ public class SecurityConfig {
     @Value("${app.frontend.url:http://localhost:5173}")
     private String frontendUrl;
 
+    // stateless: signed token cookies instead of a servlet session, so any replica can serve any request
+    @Value("${app.auth.stateless:true}")
+    private boolean stateless;
+
+    @Value("${app.auth.cookieSecure:true}")
+    private boolean cookieSecure;
+
+    private final TokenService tokenService;
+
+    public SecurityConfig(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
     @jakarta.annotation.PostConstruct
     public void logConfig() {
         boolean hasClientId = googleClientId != null && !googleClientId.isBlank();
@@ -63,11 +78,18 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         boolean googleEnabled = googleClientId != null && !googleClientId.isBlank()
                 && googleClientSecret != null && !googleClientSecret.isBlank();
-        log.info("Configuring SecurityFilterChain. googleEnabled={} frontendUrl={}", googleEnabled, frontendUrl);
+        boolean tokens = googleEnabled && stateless;
+        log.info("Configuring SecurityFilterChain. googleEnabled={} stateless={} frontendUrl={}", googleEnabled, tokens, frontendUrl);
+        TokenAuthenticationFilter tokenFilter = new TokenAuthenticationFilter(tokenService, cookieSecure);
 
         http.csrf(csrf -> csrf.disable())
             .cors(Customizer.withDefaults())
-            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.IF_REQUIRED));
+            .sessionManagement(session -> session.sessionCreationPolicy(
+                    tokens ? SessionCreationPolicy.STATELESS : SessionCreationPolicy.IF_REQUIRED));
+        if (tokens) {
+            http.requestCache(cache -> cache.requestCache(new NullRequestCache()))
+                .addFilterBefore(tokenFilter, UsernamePasswordAuthenticationFilter.class);
+        }
 
         // Lightweight request logger
         http.addFilterBefore(new OncePerRequestFilter() {
@@ -95,6 +117,9 @@ public class SecurityConfig {
         } else {
             http
                 .authorizeHttpRequests(auth -> auth
+                    // streamed responses finish in an ASYNC re-dispatch of an already authorized request;
+                    // without a session it carries no security context, so it must not be checked again
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
                     .requestMatchers(
                         "/", "/index.html", "/assets/**", "/static/**",
                         "/favicon.ico", "/login**", "/oauth2/**", "/login/oauth2/**", "/error"
@@ -113,11 +138,14 @@ public class SecurityConfig {
                     }, new AntPathRequestMatcher("/api/**"))
                 )
                 .oauth2Login(oauth -> oauth
-                    .authorizationEndpoint(a -> a.authorizationRequestRepository(authorizationRequestRepository()))
+                    .authorizationEndpoint(a -> a.authorizationRequestRepository(tokens
+                            ? new CookieOAuth2AuthorizationRequestRepository(tokenService, cookieSecure)
+                            : authorizationRequestRepository()))
                     .loginPage("/oauth2/authorization/google")
                     .successHandler((req, res, auth) -> {
                         log.info("OAuth2 login successful for {}", auth.getName());
-                        req.getSession(true);
+                        if (tokens) tokenFilter.issue(res, auth.getName());
+                        else req.getSession(true);
                         res.sendRedirect(frontendUrl + "/#/dashboard?login=success");
                     })
                     .failureHandler((req, res, ex) -> {
@@ -126,7 +154,9 @@ public class SecurityConfig {
                         res.sendRedirect(frontendUrl + "/#/?login=error&reason=" + reason);
                     })
                 )
-                .logout(logout -> logout.logoutSuccessUrl("/").permitAll());
+                .logout(logout -> logout
+                    .addLogoutHandler((req, res, auth) -> { if (tokens) tokenFilter.clear(res); })
+                    .logoutSuccessUrl("/").permitAll());
         }
         return http.build();
     }
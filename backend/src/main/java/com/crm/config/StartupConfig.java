@@ -0,0 +1,28 @@
+package com.crm.config;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Beans only the API docs need are created on first use of /swagger-ui or /v3/api-docs instead of at
+// startup. Their handler mappings are still registered by bean name, so the endpoints keep working
+@Configuration
+public class StartupConfig {
+    private static final String LAZY_PACKAGE = "org.springdoc.";
+
+    @Bean
+    public static BeanFactoryPostProcessor lazyApiDocs() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                String type = definition.getBeanClassName();
+                if (type == null && definition.getFactoryBeanName() != null
+                        && beanFactory.containsBeanDefinition(definition.getFactoryBeanName())) {
+                    type = beanFactory.getBeanDefinition(definition.getFactoryBeanName()).getBeanClassName();
+                }
+                if (type != null && type.startsWith(LAZY_PACKAGE)) definition.setLazyInit(true);
+            }
+        };
+    }
+}
@@ -0,0 +1,91 @@
+package com.crm.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Authenticates each request from its access token (the {@code crm_at} cookie or an
+ * {@code Authorization: Bearer} header) instead of a servlet session. When the access token is
+ * missing or expired but the {@code crm_rt} refresh cookie is valid, a new access token is issued
+ * on the same response, so browsers refresh transparently.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    public static final String ACCESS_COOKIE = "crm_at";
+    public static final String REFRESH_COOKIE = "crm_rt";
+
+    private final TokenService tokens;
+    private final boolean secureCookies;
+
+    public TokenAuthenticationFilter(TokenService tokens, boolean secureCookies) {
+        this.tokens = tokens;
+        this.secureCookies = secureCookies;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Optional<String> subject = bearer(request).or(() -> cookie(request, ACCESS_COOKIE))
+                .flatMap(t -> tokens.verify(t, TokenService.Type.ACCESS));
+        if (subject.isEmpty()) {
+            subject = cookie(request, REFRESH_COOKIE).flatMap(t -> tokens.verify(t, TokenService.Type.REFRESH));
+            subject.ifPresent(s -> setCookie(response, ACCESS_COOKIE,
+                    tokens.issue(TokenService.Type.ACCESS, s), tokens.ttl(TokenService.Type.ACCESS)));
+        }
+        subject.ifPresent(s -> {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                    s, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+            SecurityContextHolder.setContext(context);
+        });
+        filterChain.doFilter(request, response);
+    }
+
+    // After a successful login: both tokens as HttpOnly cookies
+    public void issue(HttpServletResponse response, String subject) {
+        setCookie(response, ACCESS_COOKIE, tokens.issue(TokenService.Type.ACCESS, subject), tokens.ttl(TokenService.Type.ACCESS));
+        setCookie(response, REFRESH_COOKIE, tokens.issue(TokenService.Type.REFRESH, subject), tokens.ttl(TokenService.Type.REFRESH));
+    }
+
+    public void clear(HttpServletResponse response) {
+        setCookie(response, ACCESS_COOKIE, "", Duration.ZERO);
+        setCookie(response, REFRESH_COOKIE, "", Duration.ZERO);
+    }
+
+    // SameSite=None: the frontend calls the API cross-site with credentials
+    private void setCookie(HttpServletResponse response, String name, String value, Duration maxAge) {
+        ResponseCookie cookie = ResponseCookie.from(name, value)
+                .httpOnly(true)
+                .secure(secureCookies)
+                .sameSite(secureCookies ? "None" : "Lax")
+                .path("/")
+                .maxAge(maxAge)
+                .build();
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+    }
+
+    private static Optional<String> bearer(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return header != null && header.startsWith("Bearer ") ? Optional.of(header.substring(7).trim()) : Optional.empty();
+    }
+
+    static Optional<String> cookie(HttpServletRequest request, String name) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) return Optional.empty();
+        for (Cookie c : cookies) if (name.equals(c.getName())) return Optional.of(c.getValue());
+        return Optional.empty();
+    }
+}
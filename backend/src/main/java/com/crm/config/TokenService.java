@@ -0,0 +1,101 @@
+package com.crm.config;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Issues and verifies the signed (HS256) tokens of the stateless auth mode: a short-lived access
+ * token and a longer-lived refresh token. The key is derived once from {@code app.auth.tokenSecret},
+ * so every replica sharing the secret can validate a token without any session or database lookup.
+ */
+@Component
+public class TokenService {
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final String TYPE_CLAIM = "typ";
+
+    public enum Type { ACCESS, REFRESH }
+
+    private final SecretKey key;
+    private final JwtEncoder encoder;
+    private final JwtDecoder decoder;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+
+    public TokenService(@Value("${app.auth.tokenSecret:}") String secret,
+                        @Value("${app.auth.accessTtlMinutes:15}") long accessTtlMinutes,
+                        @Value("${app.auth.refreshTtlDays:7}") long refreshTtlDays) {
+        this.key = new SecretKeySpec(keyMaterial(secret), "HmacSHA256");
+        this.encoder = new NimbusJwtEncoder(new ImmutableSecret<>(key));
+        this.decoder = NimbusJwtDecoder.withSecretKey(key).macAlgorithm(MacAlgorithm.HS256).build();
+        this.accessTtl = Duration.ofMinutes(accessTtlMinutes);
+        this.refreshTtl = Duration.ofDays(refreshTtlDays);
+    }
+
+    public String issue(Type type, String subject) {
+        Instant now = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(subject)
+                .issuedAt(now)
+                .expiresAt(now.plus(ttl(type)))
+                .claim(TYPE_CLAIM, type.name())
+                .build();
+        return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(), claims)).getTokenValue();
+    }
+
+    // Subject of a correctly signed, unexpired token of the given type; empty otherwise
+    public Optional<String> verify(String token, Type type) {
+        if (token == null || token.isBlank()) return Optional.empty();
+        try {
+            Jwt jwt = decoder.decode(token);
+            return type.name().equals(jwt.getClaimAsString(TYPE_CLAIM)) ? Optional.ofNullable(jwt.getSubject()) : Optional.empty();
+        } catch (JwtException e) {
+            return Optional.empty();
+        }
+    }
+
+    public Duration ttl(Type type) {
+        return type == Type.ACCESS ? accessTtl : refreshTtl;
+    }
+
+    // HMAC-SHA256 with the token key, for other signed cookies (the OAuth2 authorization request)
+    public byte[] mac(byte[] data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            return mac.doFinal(data);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] keyMaterial(String secret) {
+        if (secret == null || secret.isBlank()) {
+            log.warn("app.auth.tokenSecret not set: using a random key, tokens will not survive a restart or work across replicas");
+            byte[] random = new byte[32];
+            new SecureRandom().nextBytes(random);
+            return random;
+        }
+        try {
+            // any length of secret -> a 256-bit HS256 key
+            return MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.crm.config;
+
+import com.crm.model.Campaign;
+import com.crm.service.HttpVendorAdapter;
+import com.crm.service.SimulatedVendorAdapter;
+import com.crm.service.VendorAdapter;
+import com.crm.service.VendorClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+// One VendorAdapter per channel: the HTTP vendor when app.vendor.url is set, otherwise the in-process simulator.
+// Batch size and concurrency come from app.vendor.<channel>.batchSize / .concurrency
+@Configuration
+public class VendorConfig {
+    private final VendorClient vendorClient;
+    private final Environment env;
+
+    public VendorConfig(VendorClient vendorClient, Environment env) {
+        this.vendorClient = vendorClient;
+        this.env = env;
+    }
+
+    @Bean
+    public VendorAdapter smsAdapter() { return adapter(Campaign.Channel.SMS, 100, 4); }
+
+    @Bean
+    public VendorAdapter emailAdapter() { return adapter(Campaign.Channel.EMAIL, 500, 4); }
+
+    @Bean
+    public VendorAdapter pushAdapter() { return adapter(Campaign.Channel.PUSH, 500, 8); }
+
+    private VendorAdapter adapter(Campaign.Channel channel, int defaultBatchSize, int defaultConcurrency) {
+        String prefix = "app.vendor." + channel.name().toLowerCase() + ".";
+        int batchSize = env.getProperty(prefix + "batchSize", Integer.class, defaultBatchSize);
+        int concurrency = env.getProperty(prefix + "concurrency", Integer.class, defaultConcurrency);
+        String url = env.getProperty("app.vendor.url", "");
+        if (!url.isBlank()) return new HttpVendorAdapter(channel, vendorClient, url, batchSize, concurrency);
+        return new SimulatedVendorAdapter(channel, batchSize, concurrency,
+                env.getProperty("app.vendor.successRate", Double.class, 0.9),
+                env.getProperty("app.vendor.sim.batchFailureRate", Double.class, 0.0),
+                env.getProperty("app.vendor.sim.callLatencyMs", Long.class, 0L),
+                env.getProperty("app.vendor.sim.perMessageLatencyMs", Double.class, 0.0));
+    }
+}
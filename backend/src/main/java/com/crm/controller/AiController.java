@@ -1,20 +1,85 @@
 package com.crm.controller;
 
+import com.crm.model.Segment;
+import com.crm.repository.SegmentRepository;
 import com.crm.service.AiService;
+import com.crm.service.LocalSuggestions;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.*;
 // Successfully connected to the AI service
 @RestController
 @RequestMapping("/api/ai")
 public class AiController {
+    private static final int MAX_BATCH = 500;
+
     private final AiService aiService;
-    public AiController(AiService aiService) { this.aiService = aiService; }
+    private final SegmentRepository segmentRepository;
+    public AiController(@Lazy AiService aiService, SegmentRepository segmentRepository) {
+        this.aiService = aiService;
+        this.segmentRepository = segmentRepository;
+    }
 
     @PostMapping("/suggest-messages")
     public Map<String, Object> suggest(@RequestBody Map<String, Object> body) {
         String objective = Objects.toString(body.get("objective"), "");
         return Map.of("suggestions", aiService.suggestMessages(objective));
     }
-}
 
+    // Many objectives at once: { items: [{ objective } or { segmentId }], variants? } → { results: [{ ..., suggestions }] }
+    // An item with only a segmentId uses the segment's name as its objective
+    @PostMapping("/suggest-messages/batch")
+    public Map<String, Object> suggestBatch(@RequestBody Map<String, Object> body) {
+        if (!(body.get("items") instanceof List<?> items) || items.isEmpty()) {
+            throw new IllegalArgumentException("items must be a non-empty array");
+        }
+        if (items.size() > MAX_BATCH) throw new IllegalArgumentException("at most " + MAX_BATCH + " items per batch");
+        int variants = Integer.parseInt(Objects.toString(body.get("variants"), "3"));
+        if (variants < 1 || variants > LocalSuggestions.maxVariants()) {
+            throw new IllegalArgumentException("variants must be between 1 and " + LocalSuggestions.maxVariants());
+        }
+
+        List<Long> segmentIds = new ArrayList<>();
+        for (Object item : items) {
+            if (item instanceof Map<?, ?> m && m.get("objective") == null && m.get("segmentId") != null) {
+                segmentIds.add(Long.valueOf(m.get("segmentId").toString()));
+            }
+        }
+        Map<Long, String> segmentNames = new HashMap<>();
+        for (Segment s : segmentRepository.findAllById(segmentIds)) segmentNames.put(s.getId(), s.getName());
+
+        List<String> objectives = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (!(item instanceof Map<?, ?> m)) throw new IllegalArgumentException("items must be objects");
+            if (m.get("objective") != null) {
+                objectives.add(m.get("objective").toString());
+            } else if (m.get("segmentId") != null) {
+                Long segmentId = Long.valueOf(m.get("segmentId").toString());
+                String name = segmentNames.get(segmentId);
+                if (name == null) throw new IllegalArgumentException("Segment not found: " + segmentId);
+                objectives.add(name);
+            } else {
+                throw new IllegalArgumentException("each item needs an objective or a segmentId");
+            }
+        }
+
+        List<List<String>> suggestions = aiService.suggestBatch(objectives, variants);
+        List<Map<String, Object>> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            Object segmentId = ((Map<?, ?>) items.get(i)).get("segmentId");
+            if (segmentId != null) result.put("segmentId", segmentId);
+            result.put("objective", objectives.get(i));
+            result.put("suggestions", suggestions.get(i));
+            results.add(result);
+        }
+        return Map.of("results", results);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.<String, Object>of("error", String.valueOf(e.getMessage())));
+    }
+}
 
@@ -1,161 +1,288 @@
 package com.crm.controller;
 
+import com.crm.dto.*;
 import com.crm.model.*;
 import com.crm.repository.*;
 import com.crm.service.CampaignService;
-import com.crm.service.VendorSimulatorService;
+import com.crm.service.ClusterEvents;
+import com.crm.service.ClusterMembership;
+import com.crm.service.FrequencyCapService;
+import com.crm.service.IdempotencyConflictException;
+import com.crm.service.CustomerSample;
+import com.crm.service.IngestionService;
+import com.crm.service.JsonArrayStreamer;
+import com.crm.service.OrderRollupService;
+import com.crm.service.SegmentEvaluator;
+import com.crm.service.MessageDispatcher;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 @RestController
 @RequestMapping("/api")
 public class ApiControllers {
     private static final Logger log = LoggerFactory.getLogger(ApiControllers.class);
+    private static final int MAX_LOG_PAGE = 1000;
+    private static final int CSV_PAGE = 1000;
+    // set on ingestion responses: true when the request was a duplicate and nothing new was written
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
     private final CustomerRepository customerRepository;
     private final OrderRepository orderRepository;
     private final SegmentRepository segmentRepository;
     private final CommunicationLogRepository logRepository;
     private final CampaignService campaignService;
-    private final VendorSimulatorService vendorSimulatorService;
+    private final MessageDispatcher messageDispatcher;
+    private final FrequencyCapService frequencyCapService;
+    private final SegmentEvaluator segmentEvaluator;
+    private final OrderDailyRollupRepository rollupRepository;
+    private final OrderRollupService orderRollupService;
+    private final CustomerSample customerSample;
+    private final IngestionService ingestionService;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final ClusterEvents clusterEvents;
+    private final ClusterMembership clusterMembership;
 
     public ApiControllers(CustomerRepository customerRepository,
                           OrderRepository orderRepository,
                           SegmentRepository segmentRepository,
                           CommunicationLogRepository logRepository,
                           CampaignService campaignService,
-                          VendorSimulatorService vendorSimulatorService) {
+                          MessageDispatcher messageDispatcher,
+                          FrequencyCapService frequencyCapService,
+                          SegmentEvaluator segmentEvaluator,
+                          OrderDailyRollupRepository rollupRepository,
+                          OrderRollupService orderRollupService,
+                          CustomerSample customerSample,
+                          IngestionService ingestionService,
+                          JsonArrayStreamer jsonArrayStreamer,
+                          ClusterEvents clusterEvents,
+                          ClusterMembership clusterMembership) {
         this.customerRepository = customerRepository;
         this.orderRepository = orderRepository;
         this.segmentRepository = segmentRepository;
         this.logRepository = logRepository;
         this.campaignService = campaignService;
-        this.vendorSimulatorService = vendorSimulatorService;
+        this.messageDispatcher = messageDispatcher;
+        this.frequencyCapService = frequencyCapService;
+        this.segmentEvaluator = segmentEvaluator;
+        this.rollupRepository = rollupRepository;
+        this.orderRollupService = orderRollupService;
+        this.customerSample = customerSample;
+        this.ingestionService = ingestionService;
+        this.jsonArrayStreamer = jsonArrayStreamer;
+        this.clusterEvents = clusterEvents;
+        this.clusterMembership = clusterMembership;
     }
 
     // 1) Ingestion APIs
+    // Customers are deduplicated on email; ?upsert=true also refreshes the name of an existing customer
     @PostMapping("/customers")
-    public Customer createCustomer(@Valid @RequestBody Customer c) {
-        log.debug("POST /api/customers name={} email={}", c.getName(), c.getEmail());
-        return customerRepository.save(c);
+    public ResponseEntity<CustomerDto> createCustomer(@Valid @RequestBody Customer c,
+                                                      @RequestParam(name = "upsert", defaultValue = "false") boolean upsert) {
+        log.debug("POST /api/customers name={} email={} upsert={}", c.getName(), c.getEmail(), upsert);
+        IngestionService.Result<CustomerDto> r = ingestionService.upsertCustomer(c, upsert);
+        return ResponseEntity.ok().header(REPLAYED_HEADER, String.valueOf(!r.created())).body(r.value());
     }
+    // Orders are idempotent on the Idempotency-Key header (or body.externalId): retries return the original order
     @PostMapping("/orders")
-    public Order createOrder(@Valid @RequestBody Map<String, Object> body) {
-        log.debug("POST /api/orders body={}", body);
+    public ResponseEntity<OrderDto> createOrder(@Valid @RequestBody Map<String, Object> body,
+                                                @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        log.debug("POST /api/orders body={} idempotencyKey={}", body, idempotencyKey);
+        IngestionService.Result<OrderDto> r = ingestOrder(body, idempotencyKey);
+        return ResponseEntity.ok().header(REPLAYED_HEADER, String.valueOf(!r.created())).body(r.value());
+    }
+
+    // Bulk load with the same semantics: customers deduplicated on email, orders on externalId
+    @PostMapping("/customers/bulk")
+    public Map<String, Object> bulkCustomers(@RequestBody List<Customer> customers,
+                                             @RequestParam(name = "upsert", defaultValue = "false") boolean upsert) {
+        log.debug("POST /api/customers/bulk size={} upsert={}", customers.size(), upsert);
+        List<Customer> valid = new ArrayList<>(customers.size());
+        for (Customer c : customers) {
+            if (c.getEmail() == null || c.getEmail().isBlank() || c.getName() == null || c.getName().isBlank()) continue;
+            valid.add(c);
+        }
+        int rejected = customers.size() - valid.size();
+        int created = 0, duplicates = 0;
+        for (IngestionService.Result<CustomerDto> r : ingestionService.upsertCustomers(valid, upsert)) {
+            if (r.created()) created++; else duplicates++;
+        }
+        return Map.<String, Object>of("created", created, "duplicates", duplicates, "rejected", rejected);
+    }
+    @PostMapping("/orders/bulk")
+    public Map<String, Object> bulkOrders(@RequestBody List<Map<String, Object>> orders) {
+        log.debug("POST /api/orders/bulk size={}", orders.size());
+        List<IngestionService.OrderInput> inputs = new ArrayList<>(orders.size());
+        for (Map<String, Object> body : orders) inputs.add(orderInput(body, null));
+        int created = 0, duplicates = 0;
+        for (IngestionService.Result<OrderDto> r : ingestionService.createOrders(inputs)) {
+            if (r.created()) created++; else duplicates++;
+        }
+        return Map.<String, Object>of("created", created, "duplicates", duplicates);
+    }
+
+    private IngestionService.Result<OrderDto> ingestOrder(Map<String, Object> body, String idempotencyKey) {
+        IngestionService.OrderInput in = orderInput(body, idempotencyKey);
+        return ingestionService.createOrder(in.customerId(), in.amount(), in.date(), in.externalId());
+    }
+
+    private IngestionService.OrderInput orderInput(Map<String, Object> body, String idempotencyKey) {
         Long customerId = Long.valueOf(body.get("customerId").toString());
         Double amount = Double.valueOf(body.get("amount").toString());
-        Customer c = customerRepository.findById(customerId)
-                .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
-        Order o = new Order();
-        o.setCustomer(c);
-        o.setAmount(amount);
+        java.time.LocalDateTime date = null;
         if (body.get("date") != null) {
             try {
-                java.time.LocalDateTime dt = java.time.LocalDateTime.parse(body.get("date").toString());
-                o.setCreatedAt(dt);
+                date = java.time.LocalDateTime.parse(body.get("date").toString());
             } catch (Exception ignore) {}
         }
-        // update aggregates
-        c.setTotalSpend((c.getTotalSpend() == null ? 0.0 : c.getTotalSpend()) + amount);
-        c.setTotalVisits((c.getTotalVisits() == null ? 0 : c.getTotalVisits()) + 1);
-        c.setLastActiveAt(java.time.LocalDateTime.now());
-        customerRepository.save(c);
-        return orderRepository.save(o);
+        String key = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? idempotencyKey : Objects.toString(body.get("externalId"), null);
+        return new IngestionService.OrderInput(customerId, amount, date, key);
     }
 
     // Lists & search
+    // Full lists are streamed from a cursor as they are serialized; a search is small and loaded at once.
+    // The return type must name StreamingResponseBody, or MVC serializes the lambda itself as "{}"
     @GetMapping("/customers")
-    public List<Customer> listCustomers(@RequestParam(name = "search", required = false) String search) {
+    public ResponseEntity<StreamingResponseBody> listCustomers(@RequestParam(name = "search", required = false) String search) {
         log.debug("GET /api/customers search={}", search);
-        List<Customer> all = customerRepository.findAll();
-        if (search == null || search.isBlank()) return all;
-        String q = search.toLowerCase();
-        return all.stream().filter(c ->
-                (c.getName() != null && c.getName().toLowerCase().contains(q)) ||
-                (c.getEmail() != null && c.getEmail().toLowerCase().contains(q))
-        ).toList();
+        if (search == null || search.isBlank()) {
+            return jsonArrayStreamer.response(customerRepository::streamRows);
+        }
+        return jsonArrayStreamer.response(customerRepository.search(search.toLowerCase()).stream().map(CustomerDto::from).toList());
     }
 
     @GetMapping("/orders")
-    public List<Map<String, Object>> listOrders(@RequestParam(name = "customerId", required = false) Long customerId) {
+    public ResponseEntity<StreamingResponseBody> listOrders(@RequestParam(name = "customerId", required = false) Long customerId) {
         log.debug("GET /api/orders customerId={}", customerId);
-        List<Order> orders = orderRepository.findAll();
-        return orders.stream()
-                .filter(o -> customerId == null || (o.getCustomer() != null && o.getCustomer().getId().equals(customerId)))
-                .map(o -> Map.<String, Object>of(
-                        "id", o.getId(),
-                        "customerId", o.getCustomer() != null ? o.getCustomer().getId() : null,
-                        "customerName", o.getCustomer() != null ? o.getCustomer().getName() : null,
-                        "customerEmail", o.getCustomer() != null ? o.getCustomer().getEmail() : null,
-                        "amount", o.getAmount(),
-                        "date", o.getCreatedAt()))
-                .toList();
+        return customerId == null
+                ? jsonArrayStreamer.response(orderRepository::streamAllRows)
+                : jsonArrayStreamer.response(() -> orderRepository.streamRowsByCustomerId(customerId));
     }
 
     // 2) Segment creation
     @PostMapping("/segments")
-    public Segment createSegment(@Valid @RequestBody Segment s) {
+    public SegmentDto createSegment(@Valid @RequestBody Segment s) {
         log.debug("POST /api/segments name={}", s.getName());
-        return segmentRepository.save(s);
+        segmentEvaluator.compile(s.getRuleJson()); // reject unknown fields/operators up front
+        Segment saved = segmentRepository.save(s);
+        clusterEvents.publish(ClusterEvents.SEGMENTS, ClusterEvents.INSERT, saved.getId());
+        return SegmentDto.from(saved);
     }
     @GetMapping("/segments")
-    public List<Segment> listSegments() {
+    public List<SegmentDto> listSegments() {
         log.debug("GET /api/segments");
-        return segmentRepository.findAll();
+        return segmentRepository.findAll().stream().map(SegmentDto::from).toList();
     }
     @PostMapping("/segments/preview")
     public Map<String, Object> previewRaw(@RequestBody Map<String, Object> body) {
         log.debug("POST /api/segments/preview body.keys={}", body.keySet());
         String ruleJson = Objects.toString(body.get("ruleJson"), "");
-        List<Customer> customers = customerRepository.findAll();
-        com.crm.service.RuleEvaluator evaluator = new com.crm.service.RuleEvaluator();
-        long count = customers.stream().filter(c -> evaluator.matches(c, ruleJson)).count();
-        return Map.<String, Object>of("audienceSize", count);
+        // approximate=true: estimate from the customer sample in milliseconds (exact count until the sample is built)
+        if (Boolean.parseBoolean(Objects.toString(body.get("approximate"), "false")) && customerSample.isReady()) {
+            return estimateResponse(customerSample.estimate(ruleJson));
+        }
+        // optional previewId: a newer preview with the same id cancels this one (e.g. slider dragging)
+        String previewId = Objects.toString(body.get("previewId"), null);
+        com.crm.service.Cancellation cancel = segmentEvaluator.startPreview(previewId);
+        try {
+            long count = segmentEvaluator.count(ruleJson, cancel);
+            if (cancel.isCancelled()) return Map.<String, Object>of("cancelled", true);
+            return Map.<String, Object>of("audienceSize", count);
+        } finally {
+            segmentEvaluator.finishPreview(previewId, cancel);
+        }
+    }
+    @DeleteMapping("/segments/preview/{previewId}")
+    public Map<String, Object> cancelPreview(@PathVariable String previewId) {
+        log.debug("DELETE /api/segments/preview/{}", previewId);
+        return Map.<String, Object>of("cancelled", segmentEvaluator.cancelPreview(previewId));
     }
     @GetMapping("/segments/{id}/preview-size")
-    public Map<String, Object> previewSegment(@PathVariable Long id) {
-        log.debug("GET /api/segments/{}/preview-size", id);
+    public Map<String, Object> previewSegment(@PathVariable Long id,
+                                              @RequestParam(name = "approximate", defaultValue = "false") boolean approximate) {
+        log.debug("GET /api/segments/{}/preview-size approximate={}", id, approximate);
         Segment s = segmentRepository.findById(id).orElseThrow();
-        List<Customer> customers = customerRepository.findAll();
-        com.crm.service.RuleEvaluator evaluator = new com.crm.service.RuleEvaluator();
-        long count = customers.stream().filter(c -> evaluator.matches(c, s.getRuleJson())).count();
+        if (approximate && customerSample.isReady()) {
+            Map<String, Object> res = estimateResponse(customerSample.estimate(s.getRuleJson()));
+            res.put("segmentId", id);
+            return res;
+        }
+        long count = segmentEvaluator.count(s.getRuleJson());
         return Map.<String, Object>of("segmentId", id, "audienceSize", count);
     }
 
+    private static Map<String, Object> estimateResponse(AudienceEstimate e) {
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("audienceSize", e.audienceSize());
+        res.put("approximate", e.approximate());
+        res.put("lower", e.lower());
+        res.put("upper", e.upper());
+        res.put("confidence", e.confidence());
+        res.put("sampleSize", e.sampleSize());
+        res.put("population", e.population());
+        return res;
+    }
+
     // 3) Campaign creation/trigger
     @PostMapping("/campaigns")
-    public Campaign createCampaign(@RequestBody Map<String, Object> body) {
+    public CampaignDto createCampaign(@RequestBody Map<String, Object> body) {
         log.debug("POST /api/campaigns body={}", body);
         Long segmentId = Long.valueOf(body.get("segmentId").toString());
         String name = Objects.toString(body.get("name"), "Campaign");
         String message = Objects.toString(body.get("message"), "Hi {name}, here’s 10% off!");
-        return campaignService.createAndQueue(segmentId, name, message);
+        Campaign.Channel channel = body.get("channel") != null
+                ? Campaign.Channel.valueOf(body.get("channel").toString().toUpperCase())
+                : Campaign.Channel.EMAIL;
+        SendSchedule schedule = new SendSchedule(
+                body.get("scheduledAt") != null ? java.time.LocalDateTime.parse(body.get("scheduledAt").toString()) : null,
+                body.get("maxPerSecond") != null ? Integer.valueOf(body.get("maxPerSecond").toString()) : null,
+                body.get("quietStart") != null ? java.time.LocalTime.parse(body.get("quietStart").toString()) : null,
+                body.get("quietEnd") != null ? java.time.LocalTime.parse(body.get("quietEnd").toString()) : null);
+        return CampaignDto.from(campaignService.createAndQueue(segmentId, name, message, channel, schedule));
     }
     @GetMapping("/campaigns")
-    public List<Campaign> listCampaigns() { return campaignService.listCampaigns(); }
+    public List<CampaignDto> listCampaigns() { return campaignService.listCampaigns(); }
 
     // 3b) Vendor simulate send for PENDING logs
     @PostMapping("/vendor/send/{campaignId}")
     public Map<String, Object> simulateVendor(@PathVariable Long campaignId) {
         log.debug("POST /api/vendor/send/{}", campaignId);
-        List<CommunicationLog> logs = logRepository.findByCampaignId(campaignId);
+        // Campaigns with a send window are released gradually by the SendScheduler
+        if (campaignService.releaseToScheduler(campaignId)) {
+            return Map.<String, Object>of(
+                "campaignId", campaignId,
+                "queued", true,
+                "sent", 0,
+                "failed", 0,
+                "total", logRepository.countByCampaignId(campaignId)
+            );
+        }
+        List<CommunicationLog> pending = logRepository.findByCampaignIdAndStatus(campaignId, CommunicationLog.Status.PENDING);
+        List<CommunicationLog> send = frequencyCapService.dropCapped(pending);
+        messageDispatcher.send(campaignService.get(campaignId), send);
         int sent = 0, failed = 0;
-        for (CommunicationLog log : logs) {
-            if (log.getStatus() == CommunicationLog.Status.PENDING) {
-                vendorSimulatorService.sendMessage(log);
-                if (log.getStatus() == CommunicationLog.Status.SENT) sent++; else failed++;
-            }
+        for (CommunicationLog log : send) {
+            if (log.getStatus() == CommunicationLog.Status.SENT) sent++; else failed++;
         }
         return Map.<String, Object>of(
             "campaignId", campaignId,
             "sent", sent,
             "failed", failed,
-            "total", logs.size()
+            "suppressed", pending.size() - send.size(),
+            "total", logRepository.countByCampaignId(campaignId)
         );
     }
 
@@ -164,40 +291,89 @@ public class ApiControllers {
     public ResponseEntity<?> deliveryReceipt(@RequestBody Map<String, Object> body) {
         log.debug("POST /api/vendor/receipt body={}", body);
         String vendorId = Objects.toString(body.get("vendorMessageId"), null);
+        if (vendorId == null) throw new IllegalArgumentException("vendorMessageId is required");
         String status = Objects.toString(body.get("status"), "SENT");
-        return logRepository.findByVendorMessageId(vendorId)
+        return logRepository.findByVendorMessageId(UUID.fromString(vendorId))
                 .map(log -> {
-                    log.setStatus("SENT".equalsIgnoreCase(status) ? CommunicationLog.Status.SENT : CommunicationLog.Status.FAILED);
-                    logRepository.save(log);
+                    messageDispatcher.applyReceipt(log, "SENT".equalsIgnoreCase(status));
                     return ResponseEntity.ok(Map.<String, Object>of("ok", true));
                 })
                 .orElseGet(() -> ResponseEntity.badRequest().body(Map.<String, Object>of("error", "vendorMessageId not found")));
     }
 
-    // Campaign logs (for details view)
+    // Campaign logs (for details view): keyset-paginated, optionally filtered by status.
+    // Once a campaign is archived its rows are gone from the hot table; the first page then says so
+    // and carries the final counts instead of looking like a campaign that sent nothing
     @GetMapping("/campaigns/{id}/logs")
-    public List<Map<String, Object>> campaignLogs(@PathVariable Long id) {
-        log.debug("GET /api/campaigns/{}/logs", id);
-        List<CommunicationLog> logs = logRepository.findByCampaignId(id);
-        return logs.stream().map(l -> Map.<String, Object>of(
-                "id", l.getId(),
-                "customerId", l.getCustomer()!=null? l.getCustomer().getId(): null,
-                "customerName", l.getCustomer()!=null? l.getCustomer().getName(): null,
-                "customerEmail", l.getCustomer()!=null? l.getCustomer().getEmail(): null,
-                "status", l.getStatus().name(),
-                "vendorMessageId", l.getVendorMessageId(),
-                "updatedAt", l.getUpdatedAt()
-        )).toList();
+    public Map<String, Object> campaignLogs(@PathVariable Long id,
+                                            @RequestParam(name = "status", required = false) String status,
+                                            @RequestParam(name = "after", required = false) Long after,
+                                            @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        log.debug("GET /api/campaigns/{}/logs status={} after={} limit={}", id, status, after, limit);
+        int pageSize = Math.max(1, Math.min(limit, MAX_LOG_PAGE));
+        List<CampaignLogRow> rows = logRepository.pageLogs(id, parseStatus(status), after, pageSize);
+        Long nextCursor = rows.size() == pageSize ? rows.get(rows.size() - 1).id() : null;
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", rows);
+        page.put("nextCursor", nextCursor);
+        page.put("archived", false);
+        if (rows.isEmpty() && after == null) {
+            campaignService.archivedSummary(id).ifPresent(s -> {
+                page.put("archived", true);
+                page.put("archivedAt", s.getArchivedAt());
+                page.put("summary", CampaignService.statsOf(s));
+            });
+        }
+        return page;
+    }
+
+    // Full log download as CSV, written page by page so memory stays bounded
+    @GetMapping(value = "/campaigns/{id}/logs.csv", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> campaignLogsCsv(@PathVariable Long id,
+                                                                 @RequestParam(name = "status", required = false) String status) {
+        log.debug("GET /api/campaigns/{}/logs.csv status={}", id, status);
+        CommunicationLog.Status filter = parseStatus(status);
+        StreamingResponseBody body = out -> {
+            Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            w.write("id,customerId,customerName,customerEmail,status,vendorMessageId,updatedAt\n");
+            Long after = null;
+            List<CampaignLogRow> rows;
+            do {
+                rows = logRepository.pageLogs(id, filter, after, CSV_PAGE);
+                for (CampaignLogRow r : rows) {
+                    w.write(r.id() + "," + r.customerId() + "," + csv(r.customerName()) + "," + csv(r.customerEmail()) + ","
+                            + r.status() + "," + (r.vendorMessageId() == null ? "" : r.vendorMessageId()) + "," + (r.updatedAt() == null ? "" : r.updatedAt()) + "\n");
+                }
+                w.flush();
+                if (!rows.isEmpty()) after = rows.get(rows.size() - 1).id();
+            } while (rows.size() == CSV_PAGE);
+            w.flush();
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"campaign-" + id + "-logs.csv\"")
+                .body(body);
+    }
+
+    private static CommunicationLog.Status parseStatus(String status) {
+        if (status == null || status.isBlank()) return null;
+        try {
+            return CommunicationLog.Status.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown status: " + status);
+        }
+    }
+
+    private static String csv(String v) {
+        if (v == null) return "";
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0) return v;
+        return "\"" + v.replace("\"", "\"\"") + "\"";
     }
 
     // 4) Simple campaign stats for history page
     @GetMapping("/campaigns/{id}/stats")
-    public Map<String, Object> campaignStats(@PathVariable Long id) {
+    public CampaignStats campaignStats(@PathVariable Long id) {
         log.debug("GET /api/campaigns/{}/stats", id);
-        long sent = logRepository.countByCampaignIdAndStatus(id, CommunicationLog.Status.SENT);
-        long failed = logRepository.countByCampaignIdAndStatus(id, CommunicationLog.Status.FAILED);
-        long total = sent + failed + logRepository.countByCampaignIdAndStatus(id, CommunicationLog.Status.PENDING);
-        return Map.<String, Object>of("sent", sent, "failed", failed, "total", total);
+        return campaignService.stats(id);
     }
 
     // Dashboard stats
@@ -205,18 +381,16 @@ public class ApiControllers {
     public Map<String, Object> dashboardStats() {
         log.debug("GET /api/dashboard/stats");
         long totalCustomers = customerRepository.count();
-        long totalOrders = orderRepository.count();
-        long totalCampaigns = campaignService.listCampaigns().size();
-        Double totalIncome = orderRepository.sumAmount();
-        List<Campaign> campaigns = campaignService.listCampaigns();
-        Map<String, Object> last = Map.of();
-        if (!campaigns.isEmpty()) {
-            Campaign c = campaigns.get(campaigns.size()-1);
-            long sent = logRepository.countByCampaignIdAndStatus(c.getId(), CommunicationLog.Status.SENT);
-            long failed = logRepository.countByCampaignIdAndStatus(c.getId(), CommunicationLog.Status.FAILED);
-            long total = sent + failed + logRepository.countByCampaignIdAndStatus(c.getId(), CommunicationLog.Status.PENDING);
-            last = Map.<String, Object>of("id", c.getId(), "name", c.getName(), "sent", sent, "failed", failed, "total", total);
-        }
+        // order totals come from the daily rollup's global rows: O(days), not O(orders)
+        Object[] totals = rollupRepository.globalTotals().get(0);
+        long totalOrders = ((Number) totals[0]).longValue();
+        Double totalIncome = ((Number) totals[1]).doubleValue();
+        long totalCampaigns = campaignService.countCampaigns();
+        Map<String, Object> last = campaignService.lastCampaign().<Map<String, Object>>map(c -> {
+            CampaignStats st = campaignService.stats(c.getId());
+            return Map.<String, Object>of("id", c.getId(), "name", c.getName(),
+                    "sent", st.sent(), "failed", st.failed(), "suppressed", st.suppressed(), "total", st.total());
+        }).orElse(Map.of());
         return Map.<String, Object>of(
                 "totalCustomers", totalCustomers,
                 "totalOrders", totalOrders,
@@ -226,6 +400,36 @@ public class ApiControllers {
         );
     }
 
+    // Revenue over time (global daily rollup), default the last 30 days up to and including `to`
+    @GetMapping("/dashboard/revenue")
+    public List<RevenuePoint> revenueSeries(@RequestParam(name = "from", required = false) String from,
+                                            @RequestParam(name = "to", required = false) String to) {
+        log.debug("GET /api/dashboard/revenue from={} to={}", from, to);
+        java.time.LocalDate end = to != null ? java.time.LocalDate.parse(to) : java.time.LocalDate.now();
+        java.time.LocalDate start = from != null ? java.time.LocalDate.parse(from) : end.minusDays(29);
+        return rollupRepository.globalSeries(start, end);
+    }
+
+    // Rebuild the order rollup from the orders table (e.g. after a bulk import)
+    @PostMapping("/admin/rollup/backfill")
+    public Map<String, Object> backfillRollup() {
+        log.debug("POST /api/admin/rollup/backfill");
+        orderRollupService.backfill();
+        return Map.<String, Object>of("ok", true);
+    }
+
+    // Live replicas from the heartbeat table and the singleton jobs this node leads
+    @GetMapping("/admin/cluster")
+    public Map<String, Object> cluster() {
+        log.debug("GET /api/admin/cluster");
+        return Map.<String, Object>of(
+            "node", clusterMembership.nodeId(),
+            "coordinated", clusterMembership.isCoordinated(),
+            "leading", clusterMembership.leading(),
+            "members", clusterMembership.members()
+        );
+    }
+
     // Public health (+auth flag)
     @GetMapping("/public/health")
     public Map<String, Object> health(@Value("${GOOGLE_CLIENT_ID:}") String googleId,
@@ -246,6 +450,17 @@ public class ApiControllers {
         return Map.<String, Object>of("status", "awake", "timestamp", System.currentTimeMillis());
     }
 
+    // Invalid input (unknown rule field, missing entity, bad status filter) → 400 with a message
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.<String, Object>of("error", String.valueOf(e.getMessage())));
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, Object>> idempotencyConflict(IdempotencyConflictException e) {
+        return ResponseEntity.unprocessableEntity().body(Map.<String, Object>of("error", String.valueOf(e.getMessage())));
+    }
+
     // Current user (for frontend auth check)
     @GetMapping("/me")
     public ResponseEntity<?> me(java.security.Principal principal) {
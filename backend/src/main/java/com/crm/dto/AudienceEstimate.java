@@ -0,0 +1,10 @@
+package com.crm.dto;
+
+// Approximate audience size from the customer sample, with a 95% confidence interval
+public record AudienceEstimate(long audienceSize,
+                               long lower,
+                               long upper,
+                               int sampleSize,
+                               long population,
+                               double confidence,
+                               boolean approximate) {}
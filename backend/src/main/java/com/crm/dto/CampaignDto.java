@@ -0,0 +1,21 @@
+package com.crm.dto;
+
+import com.crm.model.Campaign;
+import java.time.LocalDateTime;
+
+// Campaign summary: references its segment by id/name only, never the rule body
+public record CampaignDto(Long id,
+                          String name,
+                          Long segmentId,
+                          String segmentName,
+                          String message,
+                          Campaign.Channel channel,
+                          LocalDateTime createdAt,
+                          LocalDateTime scheduledAt,
+                          Integer maxPerSecond,
+                          LocalDateTime dispatchedAt) {
+    public static CampaignDto from(Campaign c) {
+        return new CampaignDto(c.getId(), c.getName(), c.getSegment().getId(), c.getSegment().getName(),
+                c.getMessage(), c.getChannel(), c.getCreatedAt(), c.getScheduledAt(), c.getMaxPerSecond(), c.getDispatchedAt());
+    }
+}
@@ -0,0 +1,14 @@
+package com.crm.dto;
+
+import com.crm.model.CommunicationLog;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Flat projection of a communication log joined to its customer (no entity graph)
+public record CampaignLogRow(Long id,
+                             Long customerId,
+                             String customerName,
+                             String customerEmail,
+                             CommunicationLog.Status status,
+                             UUID vendorMessageId,
+                             LocalDateTime updatedAt) {}
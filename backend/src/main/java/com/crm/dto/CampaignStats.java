@@ -0,0 +1,5 @@
+package com.crm.dto;
+
+// failed includes dead-lettered messages; dead is the subset that exhausted its retries.
+// suppressed (frequency-capped) recipients are reported separately and not part of total.
+public record CampaignStats(long sent, long failed, long dead, long suppressed, long total) {}
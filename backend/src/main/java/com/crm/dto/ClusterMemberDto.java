@@ -0,0 +1,10 @@
+package com.crm.dto;
+
+import com.crm.model.WorkerHeartbeat;
+import java.time.LocalDateTime;
+
+public record ClusterMemberDto(String nodeId, String host, LocalDateTime startedAt, LocalDateTime lastSeenAt, String leading) {
+    public static ClusterMemberDto from(WorkerHeartbeat h) {
+        return new ClusterMemberDto(h.getNodeId(), h.getHost(), h.getStartedAt(), h.getLastSeenAt(), h.getLeading());
+    }
+}
@@ -0,0 +1,17 @@
+package com.crm.dto;
+
+import com.crm.model.Customer;
+import java.time.LocalDateTime;
+
+public record CustomerDto(Long id,
+                          String name,
+                          String email,
+                          Integer totalVisits,
+                          Double totalSpend,
+                          LocalDateTime lastActiveAt,
+                          LocalDateTime createdAt) {
+    public static CustomerDto from(Customer c) {
+        return new CustomerDto(c.getId(), c.getName(), c.getEmail(), c.getTotalVisits(),
+                c.getTotalSpend(), c.getLastActiveAt(), c.getCreatedAt());
+    }
+}
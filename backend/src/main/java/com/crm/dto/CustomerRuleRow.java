@@ -0,0 +1,15 @@
+package com.crm.dto;
+
+import com.crm.model.Customer;
+import java.time.LocalDateTime;
+
+// Just the customer columns segment rules look at; what cursor scans read instead of entities
+public record CustomerRuleRow(long id, double totalSpend, int totalVisits, LocalDateTime lastActiveAt) {
+    public static CustomerRuleRow of(Customer c) {
+        return new CustomerRuleRow(
+                c.getId() == null ? 0L : c.getId(),
+                c.getTotalSpend() == null ? 0.0 : c.getTotalSpend(),
+                c.getTotalVisits() == null ? 0 : c.getTotalVisits(),
+                c.getLastActiveAt());
+    }
+}
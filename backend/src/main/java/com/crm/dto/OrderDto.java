@@ -0,0 +1,11 @@
+package com.crm.dto;
+
+import java.time.LocalDateTime;
+
+// Order row flattened with its customer, as shown on the orders page
+public record OrderDto(Long id,
+                       Long customerId,
+                       String customerName,
+                       String customerEmail,
+                       Double amount,
+                       LocalDateTime date) {}
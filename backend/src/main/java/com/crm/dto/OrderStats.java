@@ -0,0 +1,24 @@
+package com.crm.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Per-customer order aggregates used by order-history rule predicates.
+ * Window slots line up with {@code CompiledRule.getWindows()}.
+ */
+public record OrderStats(long orderCount,
+                         double avgOrderValue,
+                         LocalDateTime firstOrderAt,
+                         double[] spendInWindow,
+                         long[] ordersInWindow) {
+    // customer without any orders
+    public static final OrderStats NONE = new OrderStats(0, 0.0, null, new double[0], new long[0]);
+
+    public double spendIn(int window) {
+        return window < spendInWindow.length ? spendInWindow[window] : 0.0;
+    }
+
+    public long ordersIn(int window) {
+        return window < ordersInWindow.length ? ordersInWindow[window] : 0L;
+    }
+}
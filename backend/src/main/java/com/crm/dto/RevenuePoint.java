@@ -0,0 +1,5 @@
+package com.crm.dto;
+
+import java.time.LocalDate;
+
+public record RevenuePoint(LocalDate day, Long orders, Double revenue) {}
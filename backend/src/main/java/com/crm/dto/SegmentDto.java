@@ -0,0 +1,10 @@
+package com.crm.dto;
+
+import com.crm.model.Segment;
+import java.time.LocalDateTime;
+
+public record SegmentDto(Long id, String name, String ruleJson, LocalDateTime createdAt) {
+    public static SegmentDto from(Segment s) {
+        return new SegmentDto(s.getId(), s.getName(), s.getRuleJson(), s.getCreatedAt());
+    }
+}
@@ -0,0 +1,9 @@
+package com.crm.dto;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// Optional send window supplied when creating a campaign; all fields nullable
+public record SendSchedule(LocalDateTime scheduledAt, Integer maxPerSecond, LocalTime quietStart, LocalTime quietEnd) {
+    public static final SendSchedule NONE = new SendSchedule(null, null, null, null);
+}
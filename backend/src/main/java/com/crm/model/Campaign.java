@@ -3,10 +3,13 @@ package com.crm.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 
 @Entity
-@Table(name = "campaigns")
+@Table(name = "campaigns", indexes = @Index(name = "idx_campaigns_schedule", columnList = "dispatched_at, scheduled_at"))
 public class Campaign {
+    public enum Channel { SMS, EMAIL, PUSH }
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -14,7 +17,7 @@ public class Campaign {
     @NotBlank
     private String name;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "segment_id")
     private Segment segment;
 
@@ -23,8 +26,29 @@ public class Campaign {
     @Column(length = 500)
     private String message;
 
+    // delivery channel; picks the VendorAdapter (rows created before channels existed are EMAIL)
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private Channel channel = Channel.EMAIL;
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Send window: when set, PENDING logs are released by the SendScheduler instead of all at once
+    private LocalDateTime scheduledAt;
+
+    // per-campaign throttle (messages/second); null = limited only by the global rate
+    private Integer maxPerSecond;
+
+    // optional daily quiet hours (server time zone); may wrap past midnight, e.g. 21:00-09:00
+    private LocalTime quietStart;
+    private LocalTime quietEnd;
+
+    // set once the scheduler has no PENDING logs left to release
+    private LocalDateTime dispatchedAt;
+
+    // set once the campaign's logs were moved to communication_log_archive (stats come from campaign_log_summary)
+    private LocalDateTime archivedAt;
+
     // getters/setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -34,8 +58,33 @@ public class Campaign {
     public void setSegment(Segment segment) { this.segment = segment; }
     public String getMessage() { return message; }
     public void setMessage(String message) { this.message = message; }
+    public Channel getChannel() { return channel == null ? Channel.EMAIL : channel; }
+    public void setChannel(Channel channel) { this.channel = channel; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+    public LocalDateTime getScheduledAt() { return scheduledAt; }
+    public void setScheduledAt(LocalDateTime scheduledAt) { this.scheduledAt = scheduledAt; }
+    public Integer getMaxPerSecond() { return maxPerSecond; }
+    public void setMaxPerSecond(Integer maxPerSecond) { this.maxPerSecond = maxPerSecond; }
+    public LocalTime getQuietStart() { return quietStart; }
+    public void setQuietStart(LocalTime quietStart) { this.quietStart = quietStart; }
+    public LocalTime getQuietEnd() { return quietEnd; }
+    public void setQuietEnd(LocalTime quietEnd) { this.quietEnd = quietEnd; }
+    public LocalDateTime getDispatchedAt() { return dispatchedAt; }
+    public void setDispatchedAt(LocalDateTime dispatchedAt) { this.dispatchedAt = dispatchedAt; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+
+    // true when sending is governed by the scheduler (start time, throttle or quiet hours)
+    public boolean hasSendWindow() {
+        return scheduledAt != null || maxPerSecond != null || (quietStart != null && quietEnd != null);
+    }
+
+    public boolean inQuietHours(LocalTime now) {
+        if (quietStart == null || quietEnd == null || quietStart.equals(quietEnd)) return false;
+        if (quietStart.isBefore(quietEnd)) return !now.isBefore(quietStart) && now.isBefore(quietEnd);
+        return !now.isBefore(quietStart) || now.isBefore(quietEnd);
+    }
 }
 
 
@@ -0,0 +1,36 @@
+package com.crm.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Final delivery counts of a campaign whose logs were archived out of communication_log
+@Entity
+@Table(name = "campaign_log_summary")
+public class CampaignLogSummary {
+    @Id
+    private Long campaignId;
+
+    private Long sent = 0L;
+    private Long failed = 0L;
+    private Long dead = 0L;
+    private Long suppressed = 0L;
+    private Long total = 0L;
+
+    private LocalDateTime archivedAt = LocalDateTime.now();
+
+    // getters and setters
+    public Long getCampaignId() { return campaignId; }
+    public void setCampaignId(Long campaignId) { this.campaignId = campaignId; }
+    public Long getSent() { return sent; }
+    public void setSent(Long sent) { this.sent = sent; }
+    public Long getFailed() { return failed; }
+    public void setFailed(Long failed) { this.failed = failed; }
+    public Long getDead() { return dead; }
+    public void setDead(Long dead) { this.dead = dead; }
+    public Long getSuppressed() { return suppressed; }
+    public void setSuppressed(Long suppressed) { this.suppressed = suppressed; }
+    public Long getTotal() { return total; }
+    public void setTotal(Long total) { this.total = total; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+    public void setArchivedAt(LocalDateTime archivedAt) { this.archivedAt = archivedAt; }
+}
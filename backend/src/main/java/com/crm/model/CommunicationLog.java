@@ -2,35 +2,77 @@ package com.crm.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 @Entity
-@Table(name = "communication_log")
+@Table(name = "communication_log", indexes = {
+        // keyset paging of a campaign's logs, optionally filtered by status
+        @Index(name = "idx_comm_log_campaign_status_id", columnList = "campaign_id, status, id"),
+        @Index(name = "idx_comm_log_campaign_id", columnList = "campaign_id, id"),
+        // retry due-queue: FAILED rows ordered by when they are next due
+        @Index(name = "idx_comm_log_retry_due", columnList = "status, next_attempt_at"),
+        // frequency cap: messages per customer by time of their last attempt
+        @Index(name = "idx_comm_log_updated_customer", columnList = "updated_at, customer_id"),
+        // delivery receipts look messages up by vendor id
+        @Index(name = "idx_comm_log_vendor_message_id", columnList = "vendor_message_id")
+})
 public class CommunicationLog {
-    public enum Status { SENT, FAILED, PENDING }
+    // DEAD = gave up after max retry attempts (dead-letter);
+    // SUPPRESSED = skipped at fan-out or release because the customer hit the frequency cap.
+    // Stored as a smallint code (see StatusConverter); codes must never be reused.
+    public enum Status {
+        SENT(1), FAILED(2), PENDING(0), DEAD(3), SUPPRESSED(4);
+
+        private final short code;
+
+        Status(int code) { this.code = (short) code; }
+
+        public short getCode() { return code; }
+
+        public static Status fromCode(short code) {
+            for (Status s : values()) if (s.code == code) return s;
+            throw new IllegalArgumentException("Unknown status code: " + code);
+        }
+    }
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "campaign_id")
     private Campaign campaign;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
-    @Enumerated(EnumType.STRING)
+    @Convert(converter = StatusConverter.class)
+    @Column(columnDefinition = "smallint")
     private Status status = Status.PENDING;
 
-    private String vendorMessageId;
+    // native uuid column (16 bytes) instead of a 36-char string
+    private UUID vendorMessageId;
 
-    private String failureReason;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "failure_reason_id")
+    private FailureReason failureReason;
+
+    // number of send attempts made so far
+    private Integer attempts = 0;
+
+    // when a FAILED message is next due for retry (null when not scheduled)
+    private LocalDateTime nextAttemptAt;
 
     private LocalDateTime createdAt = LocalDateTime.now();
 
     private LocalDateTime updatedAt = LocalDateTime.now();
 
+    @PreUpdate
+    void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
     // getters/setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -40,10 +82,14 @@ public class CommunicationLog {
     public void setCustomer(Customer customer) { this.customer = customer; }
     public Status getStatus() { return status; }
     public void setStatus(Status status) { this.status = status; }
-    public String getVendorMessageId() { return vendorMessageId; }
-    public void setVendorMessageId(String vendorMessageId) { this.vendorMessageId = vendorMessageId; }
-    public String getFailureReason() { return failureReason; }
-    public void setFailureReason(String failureReason) { this.failureReason = failureReason; }
+    public UUID getVendorMessageId() { return vendorMessageId; }
+    public void setVendorMessageId(UUID vendorMessageId) { this.vendorMessageId = vendorMessageId; }
+    public FailureReason getFailureReason() { return failureReason; }
+    public void setFailureReason(FailureReason failureReason) { this.failureReason = failureReason; }
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
     public LocalDateTime getUpdatedAt() { return updatedAt; }
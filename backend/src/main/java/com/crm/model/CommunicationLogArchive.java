@@ -0,0 +1,40 @@
+package com.crm.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Cold copy of communication_log rows for archived campaigns: plain ids, no foreign keys, no secondary indexes
+// besides campaign lookup. Rows are written by set-based INSERT ... SELECT in LogArchiver.
+@Entity
+@Table(name = "communication_log_archive", indexes = @Index(name = "idx_comm_log_archive_campaign", columnList = "campaign_id"))
+public class CommunicationLogArchive {
+    @Id
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Long campaignId;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Convert(converter = StatusConverter.class)
+    @Column(columnDefinition = "smallint")
+    private CommunicationLog.Status status;
+
+    private UUID vendorMessageId;
+
+    @Column(name = "failure_reason_id")
+    private Short failureReasonId;
+
+    private LocalDateTime updatedAt;
+
+    // getters
+    public Long getId() { return id; }
+    public Long getCampaignId() { return campaignId; }
+    public Long getCustomerId() { return customerId; }
+    public CommunicationLog.Status getStatus() { return status; }
+    public UUID getVendorMessageId() { return vendorMessageId; }
+    public Short getFailureReasonId() { return failureReasonId; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+}
@@ -0,0 +1,25 @@
+package com.crm.model;
+
+import jakarta.persistence.*;
+
+// Code table for communication_log failure reasons (a smallint per row instead of repeated text)
+@Entity
+@Table(name = "failure_reason")
+public class FailureReason {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Short id;
+
+    @Column(nullable = false, unique = true)
+    private String text;
+
+    public FailureReason() {}
+
+    public FailureReason(String text) { this.text = text; }
+
+    // getters and setters
+    public Short getId() { return id; }
+    public void setId(Short id) { this.id = id; }
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+}
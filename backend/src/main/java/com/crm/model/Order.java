@@ -5,19 +5,23 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_customer_id", columnList = "customer_id"))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne(optional = false)
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
     private Customer customer;
 
     @NotNull
     private Double amount;
 
+    // client-supplied idempotency key (Idempotency-Key header / externalId); retries with the same key are not re-inserted
+    @Column(unique = true, length = 100)
+    private String externalId;
+
     private LocalDateTime createdAt = LocalDateTime.now();
 
     // getters and setters
@@ -27,6 +31,8 @@ public class Order {
     public void setCustomer(Customer customer) { this.customer = customer; }
     public Double getAmount() { return amount; }
     public void setAmount(Double amount) { this.amount = amount; }
+    public String getExternalId() { return externalId; }
+    public void setExternalId(String externalId) { this.externalId = externalId; }
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 }
@@ -0,0 +1,48 @@
+package com.crm.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+// Orders and revenue per customer per day; customerId = GLOBAL holds the all-customer total for the day
+@Entity
+@Table(name = "order_daily_rollup",
+        uniqueConstraints = @UniqueConstraint(name = "uk_rollup_customer_day", columnNames = {"customer_id", "rollup_day"}),
+        indexes = @Index(name = "idx_rollup_day_customer", columnList = "rollup_day, customer_id"))
+public class OrderDailyRollup {
+    public static final long GLOBAL = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "customer_id", nullable = false)
+    private Long customerId;
+
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+
+    private Long orderCount = 0L;
+
+    private Double revenue = 0.0;
+
+    public OrderDailyRollup() {}
+
+    public OrderDailyRollup(Long customerId, LocalDate day, long orderCount, double revenue) {
+        this.customerId = customerId;
+        this.day = day;
+        this.orderCount = orderCount;
+        this.revenue = revenue;
+    }
+
+    // getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public Long getCustomerId() { return customerId; }
+    public void setCustomerId(Long customerId) { this.customerId = customerId; }
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+    public Long getOrderCount() { return orderCount; }
+    public void setOrderCount(Long orderCount) { this.orderCount = orderCount; }
+    public Double getRevenue() { return revenue; }
+    public void setRevenue(Double revenue) { this.revenue = revenue; }
+}
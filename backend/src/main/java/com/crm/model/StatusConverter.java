@@ -0,0 +1,18 @@
+package com.crm.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores CommunicationLog.Status as its stable smallint code rather than the enum name
+@Converter
+public class StatusConverter implements AttributeConverter<CommunicationLog.Status, Short> {
+    @Override
+    public Short convertToDatabaseColumn(CommunicationLog.Status status) {
+        return status == null ? null : status.getCode();
+    }
+
+    @Override
+    public CommunicationLog.Status convertToEntityAttribute(Short code) {
+        return code == null ? null : CommunicationLog.Status.fromCode(code);
+    }
+}
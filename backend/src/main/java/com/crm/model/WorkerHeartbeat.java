@@ -0,0 +1,32 @@
+package com.crm.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// One row per live backend replica, refreshed by its heartbeat; rows that stop being refreshed are reaped
+@Entity
+@Table(name = "worker_heartbeat")
+public class WorkerHeartbeat {
+    @Id
+    @Column(length = 100)
+    private String nodeId;
+
+    private String host;
+    private LocalDateTime startedAt;
+    private LocalDateTime lastSeenAt;
+    // singleton jobs this node currently leads, comma-separated ("leading" itself is reserved in Postgres)
+    @Column(name = "leading_jobs")
+    private String leading;
+
+    // getters and setters
+    public String getNodeId() { return nodeId; }
+    public void setNodeId(String nodeId) { this.nodeId = nodeId; }
+    public String getHost() { return host; }
+    public void setHost(String host) { this.host = host; }
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+    public LocalDateTime getLastSeenAt() { return lastSeenAt; }
+    public void setLastSeenAt(LocalDateTime lastSeenAt) { this.lastSeenAt = lastSeenAt; }
+    public String getLeading() { return leading; }
+    public void setLeading(String leading) { this.leading = leading; }
+}
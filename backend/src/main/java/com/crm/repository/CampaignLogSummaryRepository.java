@@ -0,0 +1,6 @@
+package com.crm.repository;
+
+import com.crm.model.CampaignLogSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface CampaignLogSummaryRepository extends JpaRepository<CampaignLogSummary, Long> {}
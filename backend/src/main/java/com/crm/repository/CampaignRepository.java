@@ -1,8 +1,25 @@
 package com.crm.repository;
 
+import com.crm.dto.CampaignDto;
 import com.crm.model.Campaign;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
-public interface CampaignRepository extends JpaRepository<Campaign, Long> {}
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
 
+public interface CampaignRepository extends JpaRepository<Campaign, Long> {
+    @Query("select new com.crm.dto.CampaignDto(c.id, c.name, s.id, s.name, c.message, c.channel, c.createdAt, " +
+           "c.scheduledAt, c.maxPerSecond, c.dispatchedAt) " +
+           "from Campaign c join c.segment s order by c.id")
+    List<CampaignDto> findAllSummaries();
 
+    Optional<Campaign> findTopByOrderByIdDesc();
+
+    // archival candidates: old enough and not archived yet
+    List<Campaign> findByCreatedAtBeforeAndArchivedAtIsNullOrderById(LocalDateTime cutoff);
+
+    // campaigns whose send window has opened and that still have PENDING logs to release
+    List<Campaign> findByScheduledAtLessThanEqualAndDispatchedAtIsNullOrderByScheduledAt(LocalDateTime now);
+}
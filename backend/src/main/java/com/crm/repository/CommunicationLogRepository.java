@@ -1,15 +1,116 @@
 package com.crm.repository;
 
+import com.crm.dto.CampaignLogRow;
+import com.crm.dto.CampaignStats;
 import com.crm.model.CommunicationLog;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 public interface CommunicationLogRepository extends JpaRepository<CommunicationLog, Long> {
     List<CommunicationLog> findByCampaignId(Long campaignId);
+    long countByCampaignId(Long campaignId);
     long countByCampaignIdAndStatus(Long campaignId, CommunicationLog.Status status);
-    Optional<CommunicationLog> findByVendorMessageId(String vendorMessageId);
-}
 
+    // Logs about to be dispatched, with the recipient fetched in the same select
+    @EntityGraph(attributePaths = "customer")
+    List<CommunicationLog> findByCampaignIdAndStatus(Long campaignId, CommunicationLog.Status status);
+
+    @EntityGraph(attributePaths = "customer")
+    List<CommunicationLog> findByCampaignIdAndStatusOrderById(Long campaignId, CommunicationLog.Status status, Limit limit);
+
+    boolean existsByCampaignIdAndStatus(Long campaignId, CommunicationLog.Status status);
+
+    boolean existsByCampaignIdAndStatusIn(Long campaignId, Collection<CommunicationLog.Status> statuses);
+
+    // Archival: copy a campaign's rows to communication_log_archive, then remove them from the hot table
+    @Modifying
+    @Query(value = "insert into communication_log_archive (id, campaign_id, customer_id, status, vendor_message_id, failure_reason_id, updated_at) " +
+                   "select id, campaign_id, customer_id, status, vendor_message_id, failure_reason_id, updated_at " +
+                   "from communication_log where campaign_id = :campaignId", nativeQuery = true)
+    int copyToArchive(@Param("campaignId") Long campaignId);
+
+    @Modifying
+    @Query(value = "delete from communication_log where campaign_id = :campaignId", nativeQuery = true)
+    int deleteByCampaignIdInBulk(@Param("campaignId") Long campaignId);
+
+    // Retry due-queue: the oldest-due FAILED rows, served by the (status, next_attempt_at) index
+    @EntityGraph(attributePaths = {"customer", "campaign"})
+    @Query("select l from CommunicationLog l where l.status = :status and l.nextAttemptAt <= :now order by l.nextAttemptAt")
+    List<CommunicationLog> findDueRetries(@Param("status") CommunicationLog.Status status,
+                                          @Param("now") LocalDateTime now,
+                                          Limit limit);
+
+    // FAILED rows written before next_attempt_at existed have it null and would never come due
+    @Modifying
+    @Query("update CommunicationLog l set l.nextAttemptAt = :now where l.status = :status and l.nextAttemptAt is null")
+    int scheduleUnscheduled(@Param("status") CommunicationLog.Status status, @Param("now") LocalDateTime now);
 
+    // Customers with at least `cap` counted messages attempted since `since` (frequency cap);
+    // updatedAt is the time of the last attempt (or of its receipt, which follows shortly after)
+    @Query("select l.customer.id from CommunicationLog l " +
+           "where l.updatedAt >= :since and l.status in :counted " +
+           "group by l.customer.id having count(l) >= :cap")
+    List<Long> findCustomersAtCap(@Param("since") LocalDateTime since,
+                                  @Param("counted") Collection<CommunicationLog.Status> counted,
+                                  @Param("cap") long cap);
+
+    // The same, restricted to the recipients of one release batch
+    @Query("select l.customer.id from CommunicationLog l " +
+           "where l.customer.id in :customerIds and l.updatedAt >= :since and l.status in :counted " +
+           "group by l.customer.id having count(l) >= :cap")
+    List<Long> findCustomersAtCap(@Param("customerIds") Collection<Long> customerIds,
+                                  @Param("since") LocalDateTime since,
+                                  @Param("counted") Collection<CommunicationLog.Status> counted,
+                                  @Param("cap") long cap);
+
+    @Query("select l.status, count(l) from CommunicationLog l where l.campaign.id = :campaignId group by l.status")
+    List<Object[]> countStatuses(@Param("campaignId") Long campaignId);
+
+    // sent/failed/total in one grouped query instead of one count per status
+    default CampaignStats statsFor(Long campaignId) {
+        long sent = 0, failed = 0, dead = 0, suppressed = 0, total = 0;
+        for (Object[] row : countStatuses(campaignId)) {
+            long n = ((Number) row[1]).longValue();
+            if (row[0] == CommunicationLog.Status.SUPPRESSED) { suppressed = n; continue; }
+            if (row[0] == CommunicationLog.Status.SENT) sent = n;
+            else if (row[0] == CommunicationLog.Status.FAILED) failed += n;
+            else if (row[0] == CommunicationLog.Status.DEAD) { dead = n; failed += n; }
+            total += n;
+        }
+        return new CampaignStats(sent, failed, dead, suppressed, total);
+    }
+    Optional<CommunicationLog> findByVendorMessageId(UUID vendorMessageId);
+
+    // Keyset pages of campaign logs: rows with id > afterId, ordered by id, only the columns the UI needs
+    @Query("select new com.crm.dto.CampaignLogRow(l.id, c.id, c.name, c.email, l.status, l.vendorMessageId, l.updatedAt) " +
+           "from CommunicationLog l join l.customer c " +
+           "where l.campaign.id = :campaignId and l.id > :afterId order by l.id")
+    List<CampaignLogRow> findLogPage(@Param("campaignId") Long campaignId,
+                                     @Param("afterId") Long afterId,
+                                     Limit limit);
+
+    @Query("select new com.crm.dto.CampaignLogRow(l.id, c.id, c.name, c.email, l.status, l.vendorMessageId, l.updatedAt) " +
+           "from CommunicationLog l join l.customer c " +
+           "where l.campaign.id = :campaignId and l.status = :status and l.id > :afterId order by l.id")
+    List<CampaignLogRow> findLogPageByStatus(@Param("campaignId") Long campaignId,
+                                             @Param("status") CommunicationLog.Status status,
+                                             @Param("afterId") Long afterId,
+                                             Limit limit);
+
+    default List<CampaignLogRow> pageLogs(Long campaignId, CommunicationLog.Status status, Long afterId, int limit) {
+        long after = afterId == null ? 0L : afterId;
+        return status == null
+                ? findLogPage(campaignId, after, Limit.of(limit))
+                : findLogPageByStatus(campaignId, status, after, Limit.of(limit));
+    }
+}
@@ -1,11 +1,43 @@
 package com.crm.repository;
 
+import com.crm.dto.CustomerDto;
 import com.crm.model.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer> {
     boolean existsByEmail(String email);
-}
 
+    Optional<Customer> findByEmail(String email);
+
+    // Rows for a chunk of ingested emails, looked up in one query after their batched insert
+    List<Customer> findByEmailIn(Collection<String> emails);
 
+    // [min id, max id] of the customer table, for splitting scans into id ranges
+    @Query("select min(c.id), max(c.id) from Customer c")
+    List<Object[]> idBounds();
+
+    // Case-insensitive name/email search done in the database instead of filtering findAll() in memory
+    @Query("select c from Customer c where lower(c.name) like concat('%', :q, '%') " +
+           "or lower(c.email) like concat('%', :q, '%') order by c.id")
+    List<Customer> search(@Param("q") String lowerCaseQuery);
+
+    // Full-table DTO stream over a read-only JDBC cursor; callers must be in a read-only transaction.
+    // DTOs, not entities, so nothing accumulates in the persistence context
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.crm.dto.CustomerDto(c.id, c.name, c.email, c.totalVisits, c.totalSpend, " +
+           "c.lastActiveAt, c.createdAt) from Customer c order by c.id")
+    Stream<CustomerDto> streamRows();
+}
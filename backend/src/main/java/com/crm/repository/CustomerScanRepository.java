@@ -0,0 +1,48 @@
+package com.crm.repository;
+
+import com.crm.dto.CustomerRuleRow;
+import com.crm.service.Cancellation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.function.Consumer;
+
+/**
+ * Streaming customer scans over a plain JDBC cursor: rows are fetched {@code fetchSize} at a
+ * time and handed to a callback, with no persistence context, so heap use does not grow with
+ * the number of customers. Postgres only uses a server-side cursor when autocommit is off,
+ * which the read-only transaction guarantees.
+ */
+@Repository
+public class CustomerScanRepository {
+    private static final String RULE_ROWS_SQL =
+            "select id, total_spend, total_visits, last_active_at from customers " +
+            "where id between ? and ? order by id";
+
+    private final JdbcTemplate jdbc;
+
+    public CustomerScanRepository(DataSource dataSource, @Value("${app.scan.fetchSize:1000}") int fetchSize) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.jdbc.setFetchSize(fetchSize);
+    }
+
+    // Streams the rule columns of customers with from <= id <= to, in id order, until done or cancelled
+    @Transactional(readOnly = true)
+    public void scanRuleRows(long from, long to, Cancellation cancel, Consumer<CustomerRuleRow> callback) {
+        jdbc.query(RULE_ROWS_SQL, rs -> {
+            while (!cancel.isCancelled() && rs.next()) {
+                Timestamp lastActive = rs.getTimestamp(4);
+                callback.accept(new CustomerRuleRow(
+                        rs.getLong(1),
+                        rs.getDouble(2),
+                        rs.getInt(3),
+                        lastActive == null ? null : lastActive.toLocalDateTime()));
+            }
+            return null;
+        }, from, to);
+    }
+}
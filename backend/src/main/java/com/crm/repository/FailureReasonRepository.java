@@ -0,0 +1,26 @@
+package com.crm.repository;
+
+import com.crm.model.FailureReason;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface FailureReasonRepository extends JpaRepository<FailureReason, Short> {
+    Optional<FailureReason> findByText(String text);
+
+    // Race-free insert: concurrent senders recording the same new reason both succeed
+    // (no conflict target, which H2 in PostgreSQL mode does not accept; text is the only unique key)
+    @Modifying
+    @Query(value = "insert into failure_reason (text) values (:text) on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("text") String text);
+
+    // Gives an existing reason a new text in place, so its id (and every log row pointing at it) carries over;
+    // does nothing if the new text already has a row of its own
+    @Modifying
+    @Query(value = "update failure_reason set text = :text where text = :previous " +
+                   "and not exists (select 1 from failure_reason r where r.text = :text)", nativeQuery = true)
+    int rename(@Param("previous") String previous, @Param("text") String text);
+}
@@ -0,0 +1,64 @@
+package com.crm.repository;
+
+import com.crm.dto.RevenuePoint;
+import com.crm.model.OrderDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface OrderDailyRollupRepository extends JpaRepository<OrderDailyRollup, Long> {
+    @Modifying
+    @Transactional
+    @Query("update OrderDailyRollup r set r.orderCount = r.orderCount + :orders, r.revenue = r.revenue + :revenue " +
+           "where r.customerId = :customerId and r.day = :day")
+    int increment(@Param("customerId") Long customerId,
+                  @Param("day") LocalDate day,
+                  @Param("orders") long orders,
+                  @Param("revenue") double revenue);
+
+    // Insert of a new (customer, day) row; 0 if a concurrent insert got there first. No conflict target,
+    // which H2 in PostgreSQL mode does not accept; (customer_id, rollup_day) is the only unique key
+    @Modifying
+    @Query(value = "insert into order_daily_rollup (customer_id, rollup_day, order_count, revenue) " +
+                   "values (:customerId, :day, :orders, :revenue) on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("customerId") Long customerId,
+                       @Param("day") LocalDate day,
+                       @Param("orders") long orders,
+                       @Param("revenue") double revenue);
+
+    // global (all-customer) totals: [orderCount, revenue]
+    @Query("select coalesce(sum(r.orderCount), 0), coalesce(sum(r.revenue), 0.0) from OrderDailyRollup r " +
+           "where r.customerId = " + OrderDailyRollup.GLOBAL)
+    List<Object[]> globalTotals();
+
+    @Query("select new com.crm.dto.RevenuePoint(r.day, r.orderCount, r.revenue) from OrderDailyRollup r " +
+           "where r.customerId = " + OrderDailyRollup.GLOBAL + " and r.day between :from and :to order by r.day")
+    List<RevenuePoint> globalSeries(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Backfill: rebuild the rollup from the orders table in set-based statements.
+    // SHARE blocks order inserts (and so their rollup increments) until the rebuild commits (Postgres only)
+    @Modifying
+    @Query(value = "lock table orders in share mode", nativeQuery = true)
+    void lockOrders();
+
+    @Modifying
+    @Query(value = "delete from order_daily_rollup", nativeQuery = true)
+    void deleteAllRows();
+
+    @Modifying
+    @Query(value = "insert into order_daily_rollup (customer_id, rollup_day, order_count, revenue) " +
+                   "select customer_id, cast(created_at as date), count(*), sum(amount) from orders " +
+                   "group by customer_id, cast(created_at as date)", nativeQuery = true)
+    int backfillPerCustomer();
+
+    @Modifying
+    @Query(value = "insert into order_daily_rollup (customer_id, rollup_day, order_count, revenue) " +
+                   "select " + OrderDailyRollup.GLOBAL + ", cast(created_at as date), count(*), sum(amount) from orders " +
+                   "group by cast(created_at as date)", nativeQuery = true)
+    int backfillGlobal();
+}
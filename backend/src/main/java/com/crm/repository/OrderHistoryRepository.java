@@ -0,0 +1,81 @@
+package com.crm.repository;
+
+import com.crm.dto.OrderStats;
+import com.crm.model.OrderDailyRollup;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Order-history aggregates for segment rules, read from the daily rollup (cost scales with customer-days)
+@Repository
+public class OrderHistoryRepository {
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * One grouped pass over order_daily_rollup for the customers with fromId <= id <= toId: per
+     * customer, lifetime count/avg/first order day plus spend and order count for each requested
+     * window (in days, day granularity). A window of N days is today and the N - 1 days before it.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, OrderStats> aggregate(List<Integer> windowDays, long fromId, long toId) {
+        TypedQuery<Object[]> q = query(windowDays, " and r.customerId between :fromId and :toId");
+        q.setParameter("fromId", fromId);
+        q.setParameter("toId", toId);
+        return read(q, windowDays.size());
+    }
+
+    // Same, for the given customers (e.g. a sample)
+    @Transactional(readOnly = true)
+    public Map<Long, OrderStats> aggregate(List<Integer> windowDays, Collection<Long> customerIds) {
+        TypedQuery<Object[]> q = query(windowDays, " and r.customerId in :ids");
+        q.setParameter("ids", customerIds);
+        return read(q, windowDays.size());
+    }
+
+    private TypedQuery<Object[]> query(List<Integer> windowDays, String customerFilter) {
+        StringBuilder jpql = new StringBuilder("select r.customerId, sum(r.orderCount), sum(r.revenue), min(r.day)");
+        for (int i = 0; i < windowDays.size(); i++) {
+            jpql.append(", sum(case when r.day >= :since").append(i).append(" then r.revenue else 0.0 end)")
+                .append(", sum(case when r.day >= :since").append(i).append(" then r.orderCount else 0 end)");
+        }
+        jpql.append(" from OrderDailyRollup r where r.customerId <> ").append(OrderDailyRollup.GLOBAL)
+            .append(customerFilter)
+            .append(" group by r.customerId");
+
+        TypedQuery<Object[]> q = em.createQuery(jpql.toString(), Object[].class);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < windowDays.size(); i++) {
+            q.setParameter("since" + i, today.minusDays(windowDays.get(i) - 1));
+        }
+        return q;
+    }
+
+    private static Map<Long, OrderStats> read(TypedQuery<Object[]> q, int n) {
+        Map<Long, OrderStats> out = new HashMap<>();
+        for (Object[] row : q.getResultList()) {
+            double[] spend = new double[n];
+            long[] orders = new long[n];
+            for (int i = 0; i < n; i++) {
+                spend[i] = row[4 + 2 * i] == null ? 0.0 : ((Number) row[4 + 2 * i]).doubleValue();
+                orders[i] = row[5 + 2 * i] == null ? 0L : ((Number) row[5 + 2 * i]).longValue();
+            }
+            long count = row[1] == null ? 0L : ((Number) row[1]).longValue();
+            double revenue = row[2] == null ? 0.0 : ((Number) row[2]).doubleValue();
+            out.put((Long) row[0], new OrderStats(
+                    count,
+                    count == 0 ? 0.0 : revenue / count,
+                    row[3] == null ? null : ((LocalDate) row[3]).atStartOfDay(),
+                    spend, orders));
+        }
+        return out;
+    }
+}
@@ -1,12 +1,38 @@
 package com.crm.repository;
 
+import com.crm.dto.OrderDto;
 import com.crm.model.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.QueryHint;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+    @EntityGraph(attributePaths = "customer")
+    Optional<Order> findByExternalId(String externalId);
+
     @Query("select coalesce(sum(o.amount), 0.0) from Order o")
     Double sumAmount();
-}
 
+    // Order rows over a JDBC cursor, for streaming responses; callers must be in a read-only transaction
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.crm.dto.OrderDto(o.id, c.id, c.name, c.email, o.amount, o.createdAt) " +
+           "from Order o join o.customer c order by o.id")
+    Stream<OrderDto> streamAllRows();
 
+    @QueryHints({
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = org.hibernate.jpa.HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.crm.dto.OrderDto(o.id, c.id, c.name, c.email, o.amount, o.createdAt) " +
+           "from Order o join o.customer c where c.id = :customerId order by o.id")
+    Stream<OrderDto> streamRowsByCustomerId(@Param("customerId") Long customerId);
+}
@@ -0,0 +1,20 @@
+package com.crm.repository;
+
+import com.crm.model.WorkerHeartbeat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface WorkerHeartbeatRepository extends JpaRepository<WorkerHeartbeat, String> {
+    List<WorkerHeartbeat> findByLastSeenAtAfterOrderByStartedAt(LocalDateTime cutoff);
+
+    @Modifying
+    @Transactional
+    @Query("delete from WorkerHeartbeat w where w.lastSeenAt < :cutoff")
+    int deleteStale(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -1,67 +1,76 @@
 package com.crm.service;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// created on the first suggestion request, not at startup
+@Lazy
 @Service
 public class AiService {
+    private static final int DEFAULT_VARIANTS = 3;
+    private static final Pattern NUMBERED = Pattern.compile("^[0-9]+[).]\\s*");
+
     @Value("${groq.api.key:}")
     private String groqKey;
     @Value("${groq.model.name:llama-3.1-8b-instant}")
     private String groqModel;
+    @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}")
+    private String groqUrl;
+    @Value("${groq.api.timeoutMs:15000}")
+    private long groqTimeoutMs;
+    // objectives per upstream call in a batch; larger batches are split into this many per call
+    @Value("${groq.batch.size:25}")
+    private int groqBatchSize;
+    // upstream calls of one batch in flight at a time
+    @Value("${groq.batch.concurrency:4}")
+    private int groqBatchConcurrency;
+    // wall-time cap for a whole batch; chunks still running then are cancelled and answered locally
+    @Value("${groq.batch.timeoutMs:15000}")
+    private long groqBatchTimeoutMs;
+
+    // shared pooled client (AppBeans); the blocking send parks a virtual thread, not a platform thread
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LocalSuggestions local = new LocalSuggestions();
+
+    public AiService(HttpClient httpClient) {
+        this.httpClient = httpClient;
+    }
 
     public List<String> suggestMessages(String objective) {
         if (groqKey == null || groqKey.isBlank()) {
-            return localSuggest(objective);
+            return local.suggest(objective, DEFAULT_VARIANTS);
         }
         try {
             // Build prompt asking strictly for a JSON array; honor explicit % and audience
-            String prompt = ("You are a CRM copywriter. Objective: " + objective +
-                    ". If a percent discount is specified, use exactly that percent. If a target audience is mentioned (e.g., students), tailor the tone accordingly. Return ONLY a JSON array with 3 unique short SMS messages (<=80 chars) using {name}. No commentary.")
-                    .replace("\n", " ");
-            String body = new StringBuilder()
-                    .append("{\"model\":\"").append(groqModel).append("\",")
-                    .append("\"messages\":[{\"role\":\"user\",\"content\":\"")
-                    .append(prompt.replace("\\", "\\\\").replace("\"","\\\""))
-                    .append("\"}],\"temperature\":0.9}")
-                    .toString();
-
-            var req = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create("https://api.groq.com/openai/v1/chat/completions"))
-                    .header("Authorization", "Bearer "+groqKey)
-                    .header("Content-Type", "application/json")
-                    .POST(java.net.http.HttpRequest.BodyPublishers.ofString(body))
-                    .build();
-            var client = java.net.http.HttpClient.newHttpClient();
-            var res = client.send(req, java.net.http.HttpResponse.BodyHandlers.ofString());
-            String json = res.body();
-
-            ObjectMapper om = new ObjectMapper();
-            JsonNode root = om.readTree(json);
-            String content = root.path("choices").path(0).path("message").path("content").asText("");
-            if (content == null) content = "";
-
-            // Normalize: strip code fences and language tags
-            content = content.replace("\r", "\n").trim();
-            if (content.startsWith("```")) {
-                int firstNl = content.indexOf('\n');
-                content = firstNl >= 0 ? content.substring(firstNl + 1) : content.substring(3);
-                if (content.endsWith("```")) content = content.substring(0, content.length() - 3);
-            }
-            content = content.trim();
+            String content = complete("You are a CRM copywriter. Objective: " + objective +
+                    ". If a percent discount is specified, use exactly that percent. If a target audience is mentioned (e.g., students), tailor the tone accordingly. Return ONLY a JSON array with 3 unique short SMS messages (<=80 chars) using {name}. No commentary.");
 
             List<String> lines = new ArrayList<>();
             // Try strict JSON array first
             if (content.startsWith("[") && content.endsWith("]")) {
                 try {
-                    JsonNode arr = om.readTree(content);
+                    JsonNode arr = objectMapper.readTree(content);
                     if (arr.isArray()) {
                         for (JsonNode n : arr) lines.add(n.asText(""));
                     }
@@ -72,113 +81,131 @@ public class AiService {
                 for (String line : content.split("\n")) {
                     String v = line.trim();
                     if (v.startsWith("-") || v.startsWith("*")) v = v.substring(1).trim();
-                    if (v.matches("^[0-9]+[).].*")) v = v.replaceFirst("^[0-9]+[).]\\s*", "");
+                    v = NUMBERED.matcher(v).replaceFirst("");
                     if (!v.isBlank()) lines.add(v);
                 }
             }
-            // De‑dup and cap at 3
-            LinkedHashSet<String> uniq = new LinkedHashSet<>();
-            for (String v : lines) {
-                String s = v.trim();
-                if (!s.isBlank()) uniq.add(s);
-                if (uniq.size() >= 3) break;
-            }
-            if (!uniq.isEmpty()) {
-                List<String> raw = new ArrayList<>(uniq);
-                return enforceGoalConstraints(objective, raw);
-            }
+            List<String> uniq = unique(lines, DEFAULT_VARIANTS);
+            if (!uniq.isEmpty()) return local.enforce(objective, uniq, DEFAULT_VARIANTS);
         } catch (Exception ignored) {}
 
         // Safe fallback with local variety
-        return localSuggest(objective);
+        return local.suggest(objective, DEFAULT_VARIANTS);
     }
 
-    private List<String> localSuggest(String objective) {
-        String obj = objective == null ? "" : objective.toLowerCase();
-        java.util.Random rnd = new java.util.Random(obj.hashCode());
-
-        // Extract explicit discount like "50%" or "flat 50"
-        String explicit = null;
-        java.util.regex.Matcher m1 = java.util.regex.Pattern.compile("(\\d{1,3})\\s*%", java.util.regex.Pattern.CASE_INSENSITIVE).matcher(obj);
-        if (m1.find()) explicit = m1.group(1) + "%";
-        if (explicit == null) {
-            java.util.regex.Matcher m2 = java.util.regex.Pattern.compile("flat\\s*(\\d{1,3})", java.util.regex.Pattern.CASE_INSENSITIVE).matcher(obj);
-            if (m2.find()) explicit = m2.group(1) + "%";
+    /**
+     * Up to {@code variants} messages for each objective, in input order. With an AI key, each chunk of
+     * {@code groq.batch.size} objectives is one upstream call; up to {@code groq.batch.concurrency} calls
+     * run at once and the batch waits at most {@code groq.batch.timeoutMs} for them. Objectives the model
+     * skipped, and chunks whose call failed or did not finish in time, fall back to the local generator.
+     */
+    public List<List<String>> suggestBatch(List<String> objectives, int variants) {
+        List<List<String>> results = new ArrayList<>(objectives.size());
+        if (groqKey == null || groqKey.isBlank()) {
+            for (String objective : objectives) results.add(local.suggest(objective, variants));
+            return results;
         }
-
-        String[] defaults = new String[]{"8%","10%","12%","15%","18%","20%","25%"};
-        String d1 = explicit != null ? explicit : defaults[rnd.nextInt(defaults.length)];
-        String d2 = explicit != null ? explicit : defaults[rnd.nextInt(defaults.length)];
-        String d3 = explicit != null ? explicit : defaults[rnd.nextInt(defaults.length)];
-
-        boolean students = obj.contains("student");
-        boolean inactive = obj.contains("inactive") || obj.contains("winback") || obj.contains("come back");
-        boolean highSpender = obj.contains("spend") || obj.contains("premium") || obj.contains("loyal");
-        boolean newUsers = obj.contains("new") || obj.contains("first") || obj.contains("signup");
-
-        List<String> out = new ArrayList<>();
-        if (students) {
-            out.add("Student offer: "+d1+" off for you, {name}. Verify and save now.");
-            out.add("Hey {name}, campus special—take "+d2+" off today.");
-            out.add("{name}, unlock your student deal: "+d3+" off. Limited time.");
-        } else if (inactive) {
-            out.add("It’s been a while, {name}. Enjoy "+d1+" off—come back today!");
-            out.add("{name}, we saved you "+d2+" off your next order. Tap to return.");
-            out.add("Miss you, {name}! Grab "+d3+" off and rediscover your favorites.");
-        } else if (highSpender) {
-            out.add("{name}, a thank‑you treat: "+d1+" off for our loyal customers.");
-            out.add("VIP perk unlocked, {name}: extra "+d2+" off this week only.");
-            out.add("Premium pick for you, {name}—take "+d3+" off today.");
-        } else if (newUsers) {
-            out.add("Welcome offer for you, {name}: "+d1+" off your first order.");
-            out.add("Start with a win, {name}—get "+d2+" off at checkout.");
-            out.add("Hello {name}! Claim "+d3+" off and try us now.");
-        } else {
-            out.add("Hi {name}, unlock "+d1+" off today—limited time.");
-            out.add("{name}, exclusive "+d2+" savings just for you. Shop now.");
-            out.add("Limited time: take "+d3+" off on your next purchase, {name}!");
+        int chunk = Math.max(1, groqBatchSize);
+        List<List<String>> parts = new ArrayList<>();
+        for (int from = 0; from < objectives.size(); from += chunk) {
+            parts.add(objectives.subList(from, Math.min(objectives.size(), from + chunk)));
+        }
+        List<Map<Integer, List<String>>> remote = remoteBatches(parts, variants);
+        for (int p = 0; p < parts.size(); p++) {
+            List<String> part = parts.get(p);
+            for (int i = 0; i < part.size(); i++) {
+                List<String> messages = remote.get(p).get(i + 1);
+                results.add(messages == null || messages.isEmpty()
+                        ? local.suggest(part.get(i), variants)
+                        : local.enforce(part.get(i), messages, variants));
+            }
         }
-        return enforceGoalConstraints(objective, out);
+        return results;
     }
 
-    private List<String> enforceGoalConstraints(String objective, List<String> messages) {
-        String obj = objective == null ? "" : objective.toLowerCase();
-        // Detect explicit percent (e.g., 50% or flat 50)
-        String explicit = null;
-        java.util.regex.Matcher m1 = java.util.regex.Pattern.compile("(\\d{1,3})\\s*%", java.util.regex.Pattern.CASE_INSENSITIVE).matcher(obj);
-        if (m1.find()) explicit = m1.group(1) + "%";
-        if (explicit == null) {
-            java.util.regex.Matcher m2 = java.util.regex.Pattern.compile("flat\\s*(\\d{1,3})", java.util.regex.Pattern.CASE_INSENSITIVE).matcher(obj);
-            if (m2.find()) explicit = m2.group(1) + "%";
-        }
-        boolean students = obj.contains("student");
-
-        List<String> adjusted = new ArrayList<>();
-        for (String msg : messages) {
-            String s = msg;
-            if (explicit != null) {
-                // Replace any existing percent with explicit; if none, inject explicit at first suitable spot
-                if (s.matches(".*\\d{1,3}\\s*%.*")) {
-                    s = s.replaceFirst("\\d{1,3}\\s*%", explicit);
-                } else {
-                    // Try to insert before 'off' or append at end
-                    if (s.toLowerCase().contains(" off")) {
-                        s = s.replaceFirst("(?i)(\\s)off", " "+explicit+" off");
-                    } else {
-                        s = s.endsWith("!") ? s.substring(0, s.length()-1) + " ("+explicit+" off)!" : s + " ("+explicit+" off)";
-                    }
+    // Runs the chunk calls on virtual threads; a chunk that failed or ran past the deadline yields an empty map
+    private List<Map<Integer, List<String>>> remoteBatches(List<List<String>> parts, int variants) {
+        List<Callable<Map<Integer, List<String>>>> calls = new ArrayList<>(parts.size());
+        for (List<String> part : parts) calls.add(() -> remoteBatch(part, variants));
+        int threads = Math.min(parts.size(), Math.max(1, groqBatchConcurrency));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("ai-batch-", 0).factory());
+        List<Map<Integer, List<String>>> out = new ArrayList<>(parts.size());
+        try {
+            // invokeAll cancels (interrupts) whatever has not completed by the deadline
+            for (Future<Map<Integer, List<String>>> f : pool.invokeAll(calls, groqBatchTimeoutMs, TimeUnit.MILLISECONDS)) {
+                try {
+                    out.add(f.get());
+                } catch (CancellationException | ExecutionException e) {
+                    out.add(Map.of());
                 }
             }
-            if (students && !s.toLowerCase().contains("student") && !s.toLowerCase().contains("campus") && !s.toLowerCase().contains("college")) {
-                // Preface with a short student cue if space allows
-                String prefix = "Student offer: ";
-                if (!s.toLowerCase().startsWith("student")) s = prefix + s;
-            }
-            adjusted.add(s);
-            if (adjusted.size() >= 3) break;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
         }
-        return adjusted.isEmpty() ? messages : adjusted;
+        while (out.size() < parts.size()) out.add(Map.of());
+        return out;
     }
-}
 
+    // One call for a numbered list of objectives; the model answers with a JSON object keyed by number
+    private Map<Integer, List<String>> remoteBatch(List<String> objectives, int variants) {
+        StringBuilder prompt = new StringBuilder("You are a CRM copywriter. For each numbered objective below write ")
+                .append(variants).append(" unique short SMS messages (<=80 chars) using {name}. If an objective specifies a percent discount, use exactly that percent; if it mentions a target audience, tailor the tone. ")
+                .append("Return ONLY a JSON object mapping each objective number to an array of its messages. No commentary.");
+        for (int i = 0; i < objectives.size(); i++) {
+            prompt.append(' ').append(i + 1).append(") ").append(objectives.get(i)).append('.');
+        }
+        Map<Integer, List<String>> byNumber = new HashMap<>();
+        try {
+            JsonNode root = objectMapper.readTree(complete(prompt.toString()));
+            for (int i = 1; i <= objectives.size(); i++) {
+                JsonNode arr = root.path(String.valueOf(i));
+                if (!arr.isArray()) continue;
+                List<String> lines = new ArrayList<>();
+                for (JsonNode n : arr) lines.add(n.asText(""));
+                byNumber.put(i, unique(lines, variants));
+            }
+        } catch (Exception ignored) {}
+        return byNumber;
+    }
 
+    // Sends one chat completion and returns the reply text with any code fence stripped
+    private String complete(String prompt) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "model", groqModel,
+                "messages", List.of(Map.of("role", "user", "content", prompt.replace("\n", " "))),
+                "temperature", 0.9));
+        var req = java.net.http.HttpRequest.newBuilder()
+                .uri(java.net.URI.create(groqUrl))
+                .timeout(Duration.ofMillis(groqTimeoutMs))
+                .header("Authorization", "Bearer "+groqKey)
+                .header("Content-Type", "application/json")
+                .POST(java.net.http.HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        var res = httpClient.send(req, java.net.http.HttpResponse.BodyHandlers.ofString());
+
+        JsonNode root = objectMapper.readTree(res.body());
+        String content = root.path("choices").path(0).path("message").path("content").asText("");
+
+        // Normalize: strip code fences and language tags
+        content = content.replace("\r", "\n").trim();
+        if (content.startsWith("```")) {
+            int firstNl = content.indexOf('\n');
+            content = firstNl >= 0 ? content.substring(firstNl + 1) : content.substring(3);
+            if (content.endsWith("```")) content = content.substring(0, content.length() - 3);
+        }
+        return content.trim();
+    }
+
+    // De-dup, drop blanks and cap
+    private static List<String> unique(List<String> lines, int max) {
+        LinkedHashSet<String> uniq = new LinkedHashSet<>();
+        for (String v : lines) {
+            String s = v.trim();
+            if (!s.isBlank()) uniq.add(s);
+            if (uniq.size() >= max) break;
+        }
+        return new ArrayList<>(uniq);
+    }
+}
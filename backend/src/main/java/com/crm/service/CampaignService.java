@@ -1,11 +1,19 @@
 package com.crm.service;
 
+import com.crm.dto.CampaignDto;
+import com.crm.dto.CampaignStats;
+import com.crm.dto.SendSchedule;
 import com.crm.model.*;
 import com.crm.repository.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class CampaignService {
@@ -13,45 +21,126 @@ public class CampaignService {
     private final SegmentRepository segmentRepository;
     private final CustomerRepository customerRepository;
     private final CommunicationLogRepository logRepository;
-    private final RuleEvaluator ruleEvaluator = new RuleEvaluator();
+    private final CampaignLogSummaryRepository summaryRepository;
+    private final FrequencyCapService frequencyCapService;
+    private final SegmentEvaluator segmentEvaluator;
+    private final FailureReasons failureReasons;
+    private final ClusterEvents clusterEvents;
+    private final TransactionTemplate tx;
 
     public CampaignService(CampaignRepository campaignRepository,
                            SegmentRepository segmentRepository,
                            CustomerRepository customerRepository,
-                           CommunicationLogRepository logRepository) {
+                           CommunicationLogRepository logRepository,
+                           CampaignLogSummaryRepository summaryRepository,
+                           FrequencyCapService frequencyCapService,
+                           SegmentEvaluator segmentEvaluator,
+                           FailureReasons failureReasons,
+                           ClusterEvents clusterEvents,
+                           PlatformTransactionManager transactionManager) {
         this.campaignRepository = campaignRepository;
         this.segmentRepository = segmentRepository;
         this.customerRepository = customerRepository;
         this.logRepository = logRepository;
+        this.summaryRepository = summaryRepository;
+        this.frequencyCapService = frequencyCapService;
+        this.segmentEvaluator = segmentEvaluator;
+        this.failureReasons = failureReasons;
+        this.clusterEvents = clusterEvents;
+        this.tx = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
     public Campaign createAndQueue(Long segmentId, String name, String message) {
+        return createAndQueue(segmentId, name, message, Campaign.Channel.EMAIL, SendSchedule.NONE);
+    }
+
+    // The segment is evaluated before the transaction opens: its range scans borrow pooled
+    // connections, and must not wait for them while this caller already holds one
+    public Campaign createAndQueue(Long segmentId, String name, String message, Campaign.Channel channel, SendSchedule schedule) {
         Segment segment = segmentRepository.findById(segmentId)
                 .orElseThrow(() -> new IllegalArgumentException("Segment not found"));
+        long[] recipients = segmentEvaluator.matchingIds(segment.getRuleJson());
+        Set<Long> capped = frequencyCapService.cappedCustomers();
+        return tx.execute(status -> queue(segment, recipients, capped, name, message, channel, schedule));
+    }
+
+    private Campaign queue(Segment segment, long[] recipients, Set<Long> capped,
+                           String name, String message, Campaign.Channel channel, SendSchedule schedule) {
         Campaign campaign = new Campaign();
         campaign.setName(name);
         campaign.setMessage(message);
+        campaign.setChannel(channel);
         campaign.setSegment(segment);
+        campaign.setScheduledAt(schedule.scheduledAt());
+        campaign.setMaxPerSecond(schedule.maxPerSecond());
+        campaign.setQuietStart(schedule.quietStart());
+        campaign.setQuietEnd(schedule.quietEnd());
         campaign = campaignRepository.save(campaign);
 
-        // Precompute logs as PENDING for matched users
-        String ruleJson = segment.getRuleJson();
-        List<Customer> customers = customerRepository.findAll();
-        for (Customer c : customers) {
-            if (ruleEvaluator.matches(c, ruleJson)) {
-                CommunicationLog log = new CommunicationLog();
-                log.setCampaign(campaign);
-                log.setCustomer(c);
+        // Precompute logs as PENDING for matched users; capped customers are recorded as SUPPRESSED
+        FailureReason capReason = capped.isEmpty() ? null : failureReasons.of(FailureReasons.FREQUENCY_CAP);
+        for (long customerId : recipients) {
+            CommunicationLog log = new CommunicationLog();
+            log.setCampaign(campaign);
+            log.setCustomer(customerRepository.getReferenceById(customerId));
+            if (capped.contains(customerId)) {
+                log.setStatus(CommunicationLog.Status.SUPPRESSED);
+                log.setFailureReason(capReason);
+            } else {
                 log.setStatus(CommunicationLog.Status.PENDING);
-                logRepository.save(log);
             }
+            logRepository.save(log);
         }
+        // delivered to the other replicas when this transaction commits
+        clusterEvents.publish(ClusterEvents.CAMPAIGNS, ClusterEvents.INSERT, campaign.getId());
         return campaign;
     }
 
-    public List<Campaign> listCampaigns() {
-        return campaignRepository.findAll();
+    public List<CampaignDto> listCampaigns() {
+        return campaignRepository.findAllSummaries();
+    }
+
+    public long countCampaigns() {
+        return campaignRepository.count();
+    }
+
+    // Live counts from communication_log; archived campaigns resolve from their materialized summary
+    public CampaignStats stats(Long campaignId) {
+        CampaignStats live = logRepository.statsFor(campaignId);
+        if (live.total() > 0 || live.suppressed() > 0) return live;
+        return archivedSummary(campaignId).map(CampaignService::statsOf).orElse(live);
+    }
+
+    // Final counts of a campaign whose logs were moved to communication_log_archive; empty while they are live
+    public Optional<CampaignLogSummary> archivedSummary(Long campaignId) {
+        return summaryRepository.findById(campaignId);
+    }
+
+    public static CampaignStats statsOf(CampaignLogSummary s) {
+        return new CampaignStats(s.getSent(), s.getFailed(), s.getDead(), s.getSuppressed(), s.getTotal());
+    }
+
+    public Optional<Campaign> lastCampaign() {
+        return campaignRepository.findTopByOrderByIdDesc();
+    }
+
+    public Campaign get(Long campaignId) {
+        return campaignRepository.findById(campaignId)
+                .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
+    }
+
+    // Hands a windowed campaign to the SendScheduler (on whichever replica leads dispatch), starting now.
+    // Returns false for campaigns without a send window, which are still sent inline by the caller.
+    @Transactional
+    public boolean releaseToScheduler(Long campaignId) {
+        Campaign c = campaignRepository.findById(campaignId)
+                .orElseThrow(() -> new IllegalArgumentException("Campaign not found"));
+        if (!c.hasSendWindow()) return false;
+        LocalDateTime now = LocalDateTime.now();
+        if (c.getScheduledAt() == null || c.getScheduledAt().isAfter(now)) c.setScheduledAt(now);
+        c.setDispatchedAt(null);
+        clusterEvents.publish(ClusterEvents.CAMPAIGNS, ClusterEvents.UPDATE, campaignId);
+        return true;
     }
 }
 
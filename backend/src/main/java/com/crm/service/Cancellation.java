@@ -0,0 +1,18 @@
+package com.crm.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Cooperative cancellation flag checked by long-running scans between chunks
+public final class Cancellation {
+    public static final Cancellation NONE = new Cancellation();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    public void cancel() {
+        if (this != NONE) cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+}
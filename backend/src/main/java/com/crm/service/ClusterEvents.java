@@ -0,0 +1,154 @@
+package com.crm.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Cache-invalidation broadcasts between replicas over Postgres {@code LISTEN/NOTIFY}. A change is
+ * published with {@code pg_notify} on the caller's connection, so inside a transaction it is only
+ * delivered if and when that transaction commits. Each node listens on a dedicated connection and
+ * hands other nodes' events to the subscribers of the topic; its own events are skipped, since the
+ * local caches were updated in place. If the listener loses its connection, events may have been
+ * missed, so resync handlers run after it reconnects.
+ */
+@Service
+public class ClusterEvents {
+    private static final Logger log = LoggerFactory.getLogger(ClusterEvents.class);
+    public static final String CHANNEL = "crm_events";
+    public static final String CUSTOMERS = "customer";
+    public static final String SEGMENTS = "segment";
+    public static final String CAMPAIGNS = "campaign";
+    public static final String INSERT = "insert";
+    public static final String UPDATE = "update";
+    // keeps each payload well under the 8000-byte NOTIFY limit
+    private static final int IDS_PER_NOTIFY = 500;
+    private static final long RECONNECT_DELAY_MS = 2000;
+
+    public record Event(String node, String topic, String op, List<Long> ids) {}
+
+    private final ClusterNode node;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<Consumer<Event>>> subscribers = new ConcurrentHashMap<>();
+    private final List<Runnable> resyncHandlers = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    public ClusterEvents(ClusterNode node, JdbcTemplate jdbcTemplate) {
+        this.node = node;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void subscribe(String topic, Consumer<Event> handler) {
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    public void onResync(Runnable handler) {
+        resyncHandlers.add(handler);
+    }
+
+    public void publish(String topic, String op, Long id) {
+        publish(topic, op, List.of(id));
+    }
+
+    public void publish(String topic, String op, Collection<Long> ids) {
+        if (!node.isCoordinated() || ids.isEmpty()) return;
+        List<Long> all = List.copyOf(ids);
+        try {
+            for (int from = 0; from < all.size(); from += IDS_PER_NOTIFY) {
+                List<Long> part = all.subList(from, Math.min(all.size(), from + IDS_PER_NOTIFY));
+                String payload = objectMapper.writeValueAsString(new Event(node.getId(), topic, op, part));
+                jdbcTemplate.query("select pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, CHANNEL, payload);
+            }
+        } catch (JsonProcessingException | DataAccessException e) {
+            // the change itself stands; other replicas keep stale entries until their caches resync
+            log.warn("Could not publish {} {} event: {}", topic, op, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!node.isCoordinated()) return;
+        running = true;
+        listener = Thread.ofPlatform().daemon().name("cluster-listen").start(this::listen);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) listener.interrupt();
+    }
+
+    private void listen() {
+        boolean reconnect = false;
+        while (running) {
+            try (Connection conn = node.openConnection()) {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    log.info("Cluster listener reconnected; resyncing caches");
+                    resyncHandlers.forEach(this::runSafely);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] batch = pg.getNotifications(1000);
+                    if (batch == null) continue;
+                    for (PGNotification n : batch) deliver(n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                log.warn("Cluster listener lost its connection, reconnecting: {}", e.getMessage());
+                reconnect = true;
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        Event event;
+        try {
+            event = objectMapper.readValue(payload, Event.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cluster event: {}", payload);
+            return;
+        }
+        if (node.getId().equals(event.node())) return;
+        for (Consumer<Event> handler : subscribers.getOrDefault(event.topic(), List.of())) {
+            runSafely(() -> handler.accept(event));
+        }
+    }
+
+    private void runSafely(Runnable r) {
+        try {
+            r.run();
+        } catch (RuntimeException e) {
+            log.warn("Cluster event handler failed", e);
+        }
+    }
+}
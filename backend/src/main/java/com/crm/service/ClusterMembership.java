@@ -0,0 +1,78 @@
+package com.crm.service;
+
+import com.crm.dto.ClusterMemberDto;
+import com.crm.model.WorkerHeartbeat;
+import com.crm.repository.WorkerHeartbeatRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Worker membership through the {@code worker_heartbeat} table: every coordinated node upserts its row each
+ * {@code app.cluster.heartbeatMs} and reaps rows not refreshed for {@code app.cluster.deadAfterMs}.
+ * The heartbeat also re-checks the leader-lock connection. Timestamps come from each node's clock,
+ * so the dead-after window must comfortably exceed clock skew between hosts.
+ */
+@Service
+public class ClusterMembership {
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    private final ClusterNode node;
+    private final LeaderElection leaderElection;
+    private final WorkerHeartbeatRepository repository;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    @Value("${app.cluster.deadAfterMs:30000}")
+    private long deadAfterMs;
+
+    public ClusterMembership(ClusterNode node, LeaderElection leaderElection, WorkerHeartbeatRepository repository) {
+        this.node = node;
+        this.leaderElection = leaderElection;
+        this.repository = repository;
+    }
+
+    @Scheduled(fixedDelayString = "${app.cluster.heartbeatMs:5000}")
+    public void heartbeat() {
+        if (!node.isCoordinated()) return; // single-instance deployment: nothing to coordinate
+        leaderElection.verify();
+        LocalDateTime now = LocalDateTime.now();
+        WorkerHeartbeat row = new WorkerHeartbeat();
+        row.setNodeId(node.getId());
+        row.setHost(node.getHost());
+        row.setStartedAt(startedAt);
+        row.setLastSeenAt(now);
+        row.setLeading(String.join(",", leaderElection.leading()));
+        repository.save(row);
+        int reaped = repository.deleteStale(now.minus(Duration.ofMillis(deadAfterMs)));
+        if (reaped > 0) log.info("Removed {} worker(s) without a heartbeat for {} ms", reaped, deadAfterMs);
+    }
+
+    // Members seen within the dead-after window, oldest first
+    public List<ClusterMemberDto> members() {
+        return repository.findByLastSeenAtAfterOrderByStartedAt(LocalDateTime.now().minus(Duration.ofMillis(deadAfterMs)))
+                .stream().map(ClusterMemberDto::from).toList();
+    }
+
+    public String nodeId() { return node.getId(); }
+
+    public boolean isCoordinated() { return node.isCoordinated(); }
+
+    public List<String> leading() { return List.copyOf(leaderElection.leading()); }
+
+    @PreDestroy
+    public void leave() {
+        try {
+            repository.deleteById(node.getId());
+        } catch (DataAccessException e) {
+            log.debug("Could not remove heartbeat row on shutdown: {}", e.getMessage());
+        }
+    }
+}
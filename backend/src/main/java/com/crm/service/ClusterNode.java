@@ -0,0 +1,68 @@
+package com.crm.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Identity of this replica and access to Postgres for cross-instance coordination. Coordination is
+ * on when the datasource is Postgres ({@code app.cluster.enabled=auto}); on other databases every
+ * node behaves as a single-instance deployment. LISTEN and session advisory locks are tied to one
+ * connection, so they use dedicated connections from {@link #openConnection()} outside the pool.
+ */
+@Component
+public class ClusterNode {
+    private final String id;
+    private final String host;
+    private final boolean postgres;
+    private final boolean coordinated;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    public ClusterNode(@Value("${app.cluster.enabled:auto}") String enabled,
+                       @Value("${app.cluster.nodeId:}") String nodeId,
+                       @Value("${spring.datasource.url:}") String url,
+                       @Value("${spring.datasource.username:}") String username,
+                       @Value("${spring.datasource.password:}") String password) {
+        this.postgres = url.startsWith("jdbc:postgresql:");
+        if (Boolean.parseBoolean(enabled) && !postgres) {
+            throw new IllegalStateException("app.cluster.enabled=true requires a Postgres datasource");
+        }
+        this.coordinated = postgres && !"false".equalsIgnoreCase(enabled);
+        this.host = hostName();
+        this.id = nodeId.isBlank()
+                ? host + "-" + ProcessHandle.current().pid() + "-" + Integer.toHexString(ThreadLocalRandom.current().nextInt())
+                : nodeId;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    public String getId() { return id; }
+
+    public String getHost() { return host; }
+
+    public boolean isCoordinated() { return coordinated; }
+
+    public boolean isPostgres() { return postgres; }
+
+    public Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(url, username, password);
+        conn.setAutoCommit(true);
+        return conn;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.crm.service;
+
+import com.crm.dto.CustomerRuleRow;
+import com.crm.dto.OrderStats;
+import com.crm.model.Customer;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A segment rule parsed and validated once, ready to be evaluated against many customers.
+ * Windowed order predicates refer to slots in {@link #getWindows()}.
+ */
+public final class CompiledRule {
+    public static final CompiledRule ALWAYS = new CompiledRule((c, o, now) -> true, List.of(), false);
+
+    @FunctionalInterface
+    interface Node {
+        boolean test(CustomerRuleRow c, OrderStats o, LocalDateTime now);
+    }
+
+    private final Node root;
+    private final List<Integer> windows;
+    private final boolean usesOrderHistory;
+
+    CompiledRule(Node root, List<Integer> windows, boolean usesOrderHistory) {
+        this.root = root;
+        this.windows = List.copyOf(windows);
+        this.usesOrderHistory = usesOrderHistory;
+    }
+
+    public boolean matches(CustomerRuleRow c, OrderStats o, LocalDateTime now) {
+        return root.test(c, o == null ? OrderStats.NONE : o, now);
+    }
+
+    public boolean matches(Customer c) {
+        return matches(CustomerRuleRow.of(c), OrderStats.NONE, LocalDateTime.now());
+    }
+
+    // distinct window lengths (days) referenced by the rule, in slot order
+    public List<Integer> getWindows() { return windows; }
+
+    // true if evaluating the rule needs order aggregates
+    public boolean usesOrderHistory() { return usesOrderHistory; }
+}
@@ -0,0 +1,212 @@
+package com.crm.service;
+
+import com.crm.dto.AudienceEstimate;
+import com.crm.dto.CustomerRuleRow;
+import com.crm.dto.OrderStats;
+import com.crm.model.Customer;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.CustomerScanRepository;
+import com.crm.repository.OrderHistoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Uniform random sample of customers (reservoir sampling, Algorithm R) for interactive
+ * audience estimates. Built once by a streaming scan at startup, then kept up to date as
+ * customers are inserted or their rule fields change. Estimating a rule costs O(sample size).
+ * <p>
+ * While a rebuild runs, the scan covers every id up to the maximum it read at the start; a
+ * customer inserted meanwhile is offered by {@link #onInsert} only if its id is above that bound,
+ * so no customer is counted twice. A failed build is retried with a growing delay; until one
+ * succeeds the sample is not ready and estimates fall back to exact counts.
+ */
+@Service
+public class CustomerSample {
+    private static final Logger log = LoggerFactory.getLogger(CustomerSample.class);
+    private static final double Z_95 = 1.96;
+    private static final int MAX_BUILD_ATTEMPTS = 5;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerScanRepository customerScanRepository;
+    private final OrderHistoryRepository orderHistoryRepository;
+    private final RuleEvaluator ruleEvaluator = new RuleEvaluator();
+    private final Random random = new Random();
+    private final int capacity;
+    private final long retryDelayMs;
+    // rebuilds (startup, resync after a lost listener) run one at a time
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    // guarded by this
+    private final List<CustomerRuleRow> rows = new ArrayList<>();
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private long population;
+    private boolean building;
+    // highest id the running rebuild scans; null until it has read the bounds
+    private Long scanBound;
+    // inserts seen before the bound was known
+    private final List<CustomerRuleRow> pending = new ArrayList<>();
+    private volatile boolean ready;
+
+    public CustomerSample(CustomerRepository customerRepository,
+                          CustomerScanRepository customerScanRepository,
+                          OrderHistoryRepository orderHistoryRepository,
+                          ClusterEvents clusterEvents,
+                          @Value("${app.sample.size:10000}") int capacity,
+                          @Value("${app.sample.retryDelayMs:30000}") long retryDelayMs) {
+        this.customerRepository = customerRepository;
+        this.customerScanRepository = customerScanRepository;
+        this.orderHistoryRepository = orderHistoryRepository;
+        this.capacity = capacity;
+        this.retryDelayMs = retryDelayMs;
+        clusterEvents.subscribe(ClusterEvents.CUSTOMERS, this::onRemoteChange);
+        clusterEvents.onResync(this::buildInBackground);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        build(1);
+    }
+
+    private void build(int attempt) {
+        CompletableFuture.runAsync(this::rebuild).exceptionally(e -> {
+            if (attempt >= MAX_BUILD_ATTEMPTS) {
+                log.error("Customer sample build failed {} times; estimates use exact counts", attempt, e);
+                return null;
+            }
+            long delay = retryDelayMs * attempt;
+            log.warn("Customer sample build failed (attempt {}), retrying in {} ms: {}", attempt, delay, e.getMessage());
+            CompletableFuture.runAsync(() -> build(attempt + 1),
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            return null;
+        });
+    }
+
+    // Full streaming pass over the customers table feeding the reservoir
+    public void rebuild() {
+        buildLock.lock();
+        try {
+            synchronized (this) {
+                rows.clear();
+                slotById.clear();
+                population = 0;
+                ready = false;
+                building = true;
+                scanBound = null;
+            }
+            Object[] bounds = customerRepository.idBounds().get(0);
+            long max = bounds[1] == null ? 0 : ((Number) bounds[1]).longValue();
+            synchronized (this) {
+                scanBound = max;
+                for (CustomerRuleRow row : pending) {
+                    if (row.id() > max) offer(row);
+                }
+                pending.clear();
+            }
+            if (bounds[0] != null) {
+                customerScanRepository.scanRuleRows(((Number) bounds[0]).longValue(), max, Cancellation.NONE, this::offer);
+            }
+            ready = true;
+            log.info("Customer sample ready: {} of {} customers", size(), populationSize());
+        } finally {
+            synchronized (this) {
+                building = false;
+                scanBound = null;
+                pending.clear();
+            }
+            buildLock.unlock();
+        }
+    }
+
+    public boolean isReady() { return ready; }
+
+    // New customer: one more member of the population, kept with probability capacity/population
+    public synchronized void onInsert(Customer c) {
+        CustomerRuleRow row = CustomerRuleRow.of(c);
+        if (!building) {
+            offer(row);
+        } else if (scanBound == null) {
+            pending.add(row);
+        } else if (row.id() > scanBound) {
+            offer(row);
+        }
+        // otherwise the running scan counts it
+    }
+
+    // Rule fields of an existing customer changed (e.g. an order was recorded)
+    public synchronized void onUpdate(Customer c) {
+        Integer slot = slotById.get(c.getId());
+        if (slot != null) rows.set(slot, CustomerRuleRow.of(c));
+    }
+
+    // Customers inserted or updated through another replica: apply the same change here
+    private void onRemoteChange(ClusterEvents.Event event) {
+        for (Customer c : customerRepository.findAllById(event.ids())) {
+            if (ClusterEvents.INSERT.equals(event.op())) onInsert(c); else onUpdate(c);
+        }
+        log.debug("Applied {} customer {}(s) from node {}", event.ids().size(), event.op(), event.node());
+    }
+
+    private synchronized void offer(CustomerRuleRow row) {
+        population++;
+        if (rows.size() < capacity) {
+            slotById.put(row.id(), rows.size());
+            rows.add(row);
+            return;
+        }
+        long j = (long) (random.nextDouble() * population);
+        if (j < capacity) {
+            int slot = (int) j;
+            slotById.remove(rows.get(slot).id());
+            rows.set(slot, row);
+            slotById.put(row.id(), slot);
+        }
+    }
+
+    public AudienceEstimate estimate(String ruleJson) {
+        CompiledRule rule = ruleEvaluator.compile(ruleJson);
+        List<CustomerRuleRow> snapshot;
+        long n;
+        synchronized (this) {
+            snapshot = new ArrayList<>(rows);
+            n = population;
+        }
+        Map<Long, OrderStats> history = Map.of();
+        if (rule.usesOrderHistory() && !snapshot.isEmpty()) {
+            history = orderHistoryRepository.aggregate(rule.getWindows(), snapshot.stream().map(CustomerRuleRow::id).toList());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long matched = 0;
+        for (CustomerRuleRow r : snapshot) {
+            if (rule.matches(r, history.get(r.id()), now)) matched++;
+        }
+        int k = snapshot.size();
+        if (k == 0) return new AudienceEstimate(0, 0, 0, 0, n, 0.95, true);
+        if (k >= n) return new AudienceEstimate(matched, matched, matched, k, n, 0.95, false);
+
+        // proportion estimate with finite population correction
+        double p = (double) matched / k;
+        double se = Math.sqrt(p * (1 - p) / k * (double) (n - k) / (n - 1));
+        long estimate = Math.round(p * n);
+        long lower = Math.max(matched, Math.round((p - Z_95 * se) * n));
+        long upper = Math.min(n - (k - matched), Math.round((p + Z_95 * se) * n));
+        return new AudienceEstimate(estimate, lower, upper, k, n, 0.95, true);
+    }
+
+    private synchronized int size() { return rows.size(); }
+
+    private synchronized long populationSize() { return population; }
+}
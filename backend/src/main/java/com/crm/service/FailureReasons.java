@@ -0,0 +1,58 @@
+package com.crm.service;
+
+import com.crm.model.FailureReason;
+import com.crm.repository.FailureReasonRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps failure reason text to its row in the {@code failure_reason} code table. The set of
+ * reasons is tiny, so ids are cached for the life of the process and a log row only stores a smallint.
+ */
+@Service
+public class FailureReasons {
+    public static final String FREQUENCY_CAP = "Frequency cap";
+    // the vendor answered that this message was not accepted (any adapter, not only the simulator)
+    public static final String VENDOR_FAILURE = "Vendor reported failure";
+    public static final String RECEIPT_FAILED = "Vendor receipt: FAILED";
+    public static final String VENDOR_ERROR = "Vendor request error";
+
+    // earlier text -> current text of renamed reasons. The earlier row is renamed in place on first use,
+    // so logs recorded under it keep their reason, and lookups by the earlier text get the same row
+    private static final Map<String, String> RENAMED = Map.of("Simulated vendor failure", VENDOR_FAILURE);
+
+    private final FailureReasonRepository repository;
+    private final TransactionTemplate newTx;
+    private final Map<String, Short> ids = new ConcurrentHashMap<>();
+
+    public FailureReasons(FailureReasonRepository repository, PlatformTransactionManager txManager) {
+        this.repository = repository;
+        this.newTx = new TransactionTemplate(txManager);
+        this.newTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Returns a reference to the reason's row, creating it on first use in its own transaction
+    // so the insert is visible to other senders even if the caller's transaction rolls back
+    public FailureReason of(String reason) {
+        String text = RENAMED.getOrDefault(reason, reason);
+        // not computeIfAbsent: its bin lock would be held across the database round trip
+        // (and pin a virtual thread to its carrier)
+        Short id = ids.get(text);
+        if (id == null) {
+            id = newTx.execute(status -> {
+                RENAMED.forEach((previous, current) -> {
+                    if (current.equals(text)) repository.rename(previous, text);
+                });
+                repository.insertIfAbsent(text);
+                return repository.findByText(text).orElseThrow().getId();
+            });
+            ids.putIfAbsent(text, id);
+        }
+        return repository.getReferenceById(id);
+    }
+}
@@ -0,0 +1,65 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provider reached over HTTP: one {@code POST <baseUrl>/messages/batch} per batch with
+ * {@code {"channel":..,"messages":[{"vendorMessageId","to","body"}]}}, answered by
+ * {@code {"results":[{"vendorMessageId","status":"SENT"|"FAILED"}]}}. Messages missing
+ * from the answer count as failed.
+ */
+public class HttpVendorAdapter implements VendorAdapter {
+    private final Campaign.Channel channel;
+    private final VendorClient client;
+    private final String baseUrl;
+    private final int maxBatchSize;
+    private final int maxConcurrency;
+
+    public HttpVendorAdapter(Campaign.Channel channel, VendorClient client, String baseUrl, int maxBatchSize, int maxConcurrency) {
+        this.channel = channel;
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.maxBatchSize = maxBatchSize;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    @Override
+    public Campaign.Channel channel() { return channel; }
+
+    @Override
+    public int maxBatchSize() { return maxBatchSize; }
+
+    @Override
+    public int maxConcurrency() { return maxConcurrency; }
+
+    @Override
+    public CompletableFuture<List<SendResult>> sendBatch(List<OutboundMessage> batch) {
+        List<Map<String, Object>> messages = batch.stream()
+                .map(m -> Map.<String, Object>of(
+                        "vendorMessageId", m.vendorMessageId().toString(),
+                        "to", Objects.toString(m.to(), ""),
+                        "body", Objects.toString(m.body(), "")))
+                .toList();
+        return client.postJson(baseUrl + "/messages/batch", Map.of("channel", channel.name(), "messages", messages))
+                .thenApply(response -> {
+                    Set<String> delivered = new HashSet<>();
+                    if (response.get("results") instanceof List<?> results) {
+                        for (Object o : results) {
+                            if (o instanceof Map<?, ?> r && "SENT".equals(r.get("status"))) {
+                                delivered.add(String.valueOf(r.get("vendorMessageId")));
+                            }
+                        }
+                    }
+                    return batch.stream()
+                            .map(m -> new SendResult(m.vendorMessageId(), delivered.contains(m.vendorMessageId().toString())))
+                            .toList();
+                });
+    }
+}
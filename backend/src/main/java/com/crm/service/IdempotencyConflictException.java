@@ -0,0 +1,8 @@
+package com.crm.service;
+
+// An idempotency key (Idempotency-Key / externalId) was reused for a request with a different payload
+public class IdempotencyConflictException extends RuntimeException {
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
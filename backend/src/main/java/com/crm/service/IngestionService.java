@@ -0,0 +1,221 @@
+package com.crm.service;
+
+import com.crm.dto.CustomerDto;
+import com.crm.dto.OrderDto;
+import com.crm.model.Customer;
+import com.crm.model.Order;
+import com.crm.repository.CustomerBatchRepository;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Idempotent customer/order ingestion. Orders may carry a client key (Idempotency-Key /
+ * externalId) backed by a unique index; customers are deduplicated on email with
+ * INSERT ... ON CONFLICT, batched per chunk of a bulk load and followed by one lookup by email
+ * for the chunk's rows. Recently seen keys are answered from an in-memory LRU, so a
+ * retry normally costs no database work at all. A key replayed with a different customer
+ * or amount is rejected with {@link IdempotencyConflictException}.
+ */
+@Service
+public class IngestionService {
+    public record Result<T>(T value, boolean created) {}
+    public record OrderInput(Long customerId, double amount, LocalDateTime date, String externalId) {}
+
+    // customers per batched insert and per email lookup
+    private static final int CUSTOMERS_PER_CHUNK = 500;
+
+    // Customer ids touched by one request; other replicas are notified once per request, not per row
+    private final class Changes {
+        private final Set<Long> inserted = new LinkedHashSet<>();
+        private final Set<Long> updated = new LinkedHashSet<>();
+
+        void publish() {
+            clusterEvents.publish(ClusterEvents.CUSTOMERS, ClusterEvents.INSERT, inserted);
+            updated.removeAll(inserted); // a peer reading an inserted row already sees its latest state
+            clusterEvents.publish(ClusterEvents.CUSTOMERS, ClusterEvents.UPDATE, updated);
+        }
+    }
+
+    private final CustomerRepository customerRepository;
+    private final CustomerBatchRepository customerBatchRepository;
+    private final OrderRepository orderRepository;
+    private final OrderRollupService orderRollupService;
+    private final CustomerSample customerSample;
+    private final ClusterEvents clusterEvents;
+    private final TransactionTemplate tx;
+    private final RecentKeys<OrderDto> recentOrders;
+    private final RecentKeys<CustomerDto> recentCustomers;
+
+    public IngestionService(CustomerRepository customerRepository,
+                            CustomerBatchRepository customerBatchRepository,
+                            OrderRepository orderRepository,
+                            OrderRollupService orderRollupService,
+                            CustomerSample customerSample,
+                            ClusterEvents clusterEvents,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.ingest.recentKeys:10000}") int recentKeys) {
+        this.customerRepository = customerRepository;
+        this.customerBatchRepository = customerBatchRepository;
+        this.orderRepository = orderRepository;
+        this.orderRollupService = orderRollupService;
+        this.customerSample = customerSample;
+        this.clusterEvents = clusterEvents;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.recentOrders = new RecentKeys<>(recentKeys);
+        this.recentCustomers = new RecentKeys<>(recentKeys);
+    }
+
+    public Result<OrderDto> createOrder(Long customerId, double amount, LocalDateTime date, String externalId) {
+        Changes changes = new Changes();
+        try {
+            return createOrder(new OrderInput(customerId, amount, date, externalId), changes);
+        } finally {
+            changes.publish();
+        }
+    }
+
+    public List<Result<OrderDto>> createOrders(List<OrderInput> orders) {
+        Changes changes = new Changes();
+        List<Result<OrderDto>> results = new ArrayList<>(orders.size());
+        try {
+            for (OrderInput in : orders) results.add(createOrder(in, changes));
+        } finally {
+            changes.publish();
+        }
+        return results;
+    }
+
+    private Result<OrderDto> createOrder(OrderInput in, Changes changes) {
+        String externalId = in.externalId();
+        if (externalId != null) {
+            OrderDto cached = recentOrders.get(externalId);
+            if (cached != null) return replay(cached, in);
+            var existing = orderRepository.findByExternalId(externalId);
+            if (existing.isPresent()) return replay(duplicate(existing.get()), in);
+        }
+        Order o;
+        try {
+            o = tx.execute(status -> insertOrder(in));
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent request with the same key committed first
+            if (externalId == null) throw e;
+            return replay(orderRepository.findByExternalId(externalId).map(this::duplicate).orElseThrow(() -> e), in);
+        }
+        Customer c = o.getCustomer();
+        changes.updated.add(c.getId());
+        OrderDto dto = new OrderDto(o.getId(), c.getId(), c.getName(), c.getEmail(), o.getAmount(), o.getCreatedAt());
+        recentOrders.put(externalId, dto);
+        return new Result<>(dto, true);
+    }
+
+    // Order insert, customer aggregates and daily rollup commit together; the unique key is checked on flush
+    private Order insertOrder(OrderInput in) {
+        Customer c = customerRepository.findById(in.customerId())
+                .orElseThrow(() -> new IllegalArgumentException("Customer not found"));
+        Order o = new Order();
+        o.setCustomer(c);
+        o.setAmount(in.amount());
+        o.setExternalId(in.externalId());
+        if (in.date() != null) o.setCreatedAt(in.date());
+        o = orderRepository.saveAndFlush(o);
+        // update aggregates
+        c.setTotalSpend((c.getTotalSpend() == null ? 0.0 : c.getTotalSpend()) + in.amount());
+        c.setTotalVisits((c.getTotalVisits() == null ? 0 : c.getTotalVisits()) + 1);
+        c.setLastActiveAt(LocalDateTime.now());
+        customerRepository.save(c);
+        orderRollupService.record(c.getId(), o.getCreatedAt().toLocalDate(), in.amount());
+        customerSample.onUpdate(c);
+        return o;
+    }
+
+    // A retry must carry the same order; a key reused for a different one is rejected, not silently answered
+    private Result<OrderDto> replay(OrderDto original, OrderInput in) {
+        if (!original.customerId().equals(in.customerId()) || Double.compare(original.amount(), in.amount()) != 0) {
+            throw new IdempotencyConflictException("Idempotency key " + in.externalId() + " was already used for a different order");
+        }
+        return new Result<>(original, false);
+    }
+
+    private OrderDto duplicate(Order o) {
+        Customer c = o.getCustomer();
+        OrderDto dto = new OrderDto(o.getId(), c.getId(), c.getName(), c.getEmail(), o.getAmount(), o.getCreatedAt());
+        recentOrders.put(o.getExternalId(), dto);
+        return dto;
+    }
+
+    // Inserts the customer unless the email exists; with update=true an existing customer's name is refreshed
+    public Result<CustomerDto> upsertCustomer(Customer c, boolean update) {
+        return upsertCustomers(List.of(c), update).get(0);
+    }
+
+    public List<Result<CustomerDto>> upsertCustomers(List<Customer> customers, boolean update) {
+        Changes changes = new Changes();
+        List<Result<CustomerDto>> results = new ArrayList<>(customers.size());
+        try {
+            for (int from = 0; from < customers.size(); from += CUSTOMERS_PER_CHUNK) {
+                results.addAll(upsertChunk(customers.subList(from, Math.min(customers.size(), from + CUSTOMERS_PER_CHUNK)), update, changes));
+            }
+        } finally {
+            changes.publish();
+        }
+        return results;
+    }
+
+    // One batched insert for the customers not answered from the cache, then one lookup by email for their rows
+    private List<Result<CustomerDto>> upsertChunk(List<Customer> chunk, boolean update, Changes changes) {
+        List<Result<CustomerDto>> results = new ArrayList<>(Collections.nCopies(chunk.size(), null));
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            CustomerDto cached = update ? null : recentCustomers.get(chunk.get(i).getEmail());
+            if (cached != null) results.set(i, new Result<>(cached, false));
+            else pending.add(i);
+        }
+        if (pending.isEmpty()) return results;
+
+        List<Customer> toInsert = new ArrayList<>(pending.size());
+        for (int i : pending) toInsert.add(chunk.get(i));
+        int[] inserted = customerBatchRepository.insertAllIfAbsent(toInsert);
+        Map<String, Customer> byEmail = new HashMap<>();
+        for (Customer saved : customerRepository.findByEmailIn(toInsert.stream().map(Customer::getEmail).toList())) {
+            byEmail.put(saved.getEmail(), saved);
+        }
+
+        Map<Long, Customer> renamed = new LinkedHashMap<>();
+        for (int k = 0; k < toInsert.size(); k++) {
+            Customer c = toInsert.get(k);
+            Customer saved = byEmail.get(c.getEmail());
+            if (saved == null) throw new IllegalStateException("Customer vanished after upsert: " + c.getEmail());
+            if (inserted[k] > 0) {
+                customerSample.onInsert(saved);
+                changes.inserted.add(saved.getId());
+            } else if (update && c.getName() != null && !c.getName().equals(saved.getName())) {
+                saved.setName(c.getName());
+                renamed.put(saved.getId(), saved);
+                changes.updated.add(saved.getId());
+            }
+        }
+        if (!renamed.isEmpty()) customerRepository.saveAll(renamed.values());
+
+        for (int k = 0; k < toInsert.size(); k++) {
+            CustomerDto dto = CustomerDto.from(byEmail.get(toInsert.get(k).getEmail()));
+            recentCustomers.put(dto.email(), dto);
+            results.set(pending.get(k), new Result<>(dto, inserted[k] > 0));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,98 @@
+package com.crm.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Writes a repository stream to the response as a JSON array, one element at a time. The query
+ * runs on a cursor in a read-only transaction opened inside the response body, so the full
+ * result is never held in memory as a list; output is flushed every {@link #FLUSH_EVERY} rows.
+ * <p>
+ * A stream holds its pooled connection until the client has read the last row, which for a slow
+ * client can be minutes. At most {@code app.stream.maxConcurrent} streams run at once (default a
+ * quarter of the connection pool); beyond that the request gets 503 with Retry-After at once.
+ */
+@Service
+public class JsonArrayStreamer {
+    private static final int FLUSH_EVERY = 500;
+    private static final String RETRY_AFTER_SECONDS = "5";
+    private static final byte[] BUSY = "{\"error\":\"Too many exports in progress, retry shortly\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+    // per-row flushing would defeat both buffering and gzip; flushes are batched below
+    private final ObjectWriter rowWriter;
+    private final TransactionTemplate readOnlyTx;
+    private final Semaphore streams;
+
+    public JsonArrayStreamer(ObjectMapper objectMapper, PlatformTransactionManager txManager,
+                             @Value("${app.stream.maxConcurrent:0}") int maxConcurrent,
+                             @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.objectMapper = objectMapper;
+        this.rowWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.streams = new Semaphore(maxConcurrent > 0 ? maxConcurrent : Math.max(1, connectionPoolSize / 4));
+    }
+
+    // 200 with the streamed array, or 503 if the concurrent-stream limit is reached
+    public <T> ResponseEntity<StreamingResponseBody> response(Supplier<Stream<T>> rows) {
+        if (!streams.tryAcquire()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(BUSY));
+        }
+        StreamingResponseBody array = array(rows);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> {
+            try {
+                array.writeTo(out);
+            } finally {
+                streams.release();
+            }
+        });
+    }
+
+    // A small result that is already loaded (a search): written as is, without taking a stream slot
+    public <T> ResponseEntity<StreamingResponseBody> response(List<T> rows) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> rowWriter.writeValue(out, rows));
+    }
+
+    private <T> StreamingResponseBody array(Supplier<Stream<T>> rows) {
+        return out -> readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<T> stream = rows.get();
+                 JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+                gen.writeStartArray();
+                Iterator<T> it = stream.iterator();
+                for (int n = 1; it.hasNext(); n++) {
+                    rowWriter.writeValue(gen, it.next());
+                    if (n % FLUSH_EVERY == 0) gen.flush();
+                }
+                gen.writeEndArray();
+            } catch (IOException e) {
+                // client went away: the rollback of a read-only transaction just closes the cursor
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+}
@@ -10,13 +10,18 @@ import org.springframework.web.client.RestTemplate;
 @Service
 public class KeepAliveService {
     private static final Logger log = LoggerFactory.getLogger(KeepAliveService.class);
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     
     @Value("${app.frontend.url:https://mini-crm-iqd4.onrender.com}")
     private String frontendUrl;
     
     @Value("${app.backend.url:https://crm-sde-assignemnt.onrender.com}")
     private String backendUrl;
+
+    // shared, pooled client with timeouts (see AppBeans)
+    public KeepAliveService(RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
     
     // Ping keep-alive endpoint every 10 minutes to prevent sleep
     // @Scheduled(fixedRate = 600000) // 10 minutes in milliseconds
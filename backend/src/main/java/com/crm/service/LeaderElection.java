@@ -0,0 +1,112 @@
+package com.crm.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Leader election for singleton jobs with Postgres session advisory locks. The first node to call
+ * {@link #isLeader} for a job takes {@code pg_try_advisory_lock(namespace, hash(job))} on its
+ * dedicated connection and keeps it until it shuts down or the connection dies; Postgres then frees
+ * the lock and the next node to ask takes over. {@link #verify()} (run by the heartbeat) drops
+ * leadership as soon as the connection is found broken. Without coordination every node leads.
+ */
+@Service
+public class LeaderElection {
+    private static final Logger log = LoggerFactory.getLogger(LeaderElection.class);
+    // first key of the two-int advisory lock, so job locks cannot collide with other lock users
+    private static final int LOCK_NAMESPACE = 0x43524d;
+
+    public static final String DISPATCH = "dispatch";
+    public static final String RETRY = "retry";
+    public static final String ARCHIVE = "archive";
+    public static final String ROLLUP_BACKFILL = "rollup-backfill";
+
+    private final ClusterNode node;
+    // a lock rather than synchronized: JDBC calls under it must not pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private Connection conn;
+    private final Set<String> held = new TreeSet<>();
+
+    public LeaderElection(ClusterNode node) {
+        this.node = node;
+    }
+
+    public boolean isLeader(String job) {
+        if (!node.isCoordinated()) return true;
+        lock.lock();
+        try {
+            if (held.contains(job)) return true;
+            if (conn == null) conn = node.openConnection();
+            try (PreparedStatement ps = conn.prepareStatement("select pg_try_advisory_lock(?, ?)")) {
+                ps.setInt(1, LOCK_NAMESPACE);
+                ps.setInt(2, job.hashCode());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next() && rs.getBoolean(1)) {
+                        held.add(job);
+                        log.info("Node {} is now leader for {}", node.getId(), job);
+                        return true;
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            reset(e);
+        } finally {
+            lock.unlock();
+        }
+        return false;
+    }
+
+    public Set<String> leading() {
+        lock.lock();
+        try {
+            return Set.copyOf(held);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Checks the lock connection; if it is gone, so are the locks
+    public void verify() {
+        lock.lock();
+        try {
+            if (conn != null && !conn.isValid(2)) reset(new SQLException("lock connection is no longer valid"));
+        } catch (SQLException e) {
+            reset(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        lock.lock();
+        try {
+            if (conn != null) conn.close(); // frees every advisory lock held by the session
+        } catch (SQLException ignored) {
+        } finally {
+            conn = null;
+            held.clear();
+            lock.unlock();
+        }
+    }
+
+    private void reset(SQLException e) {
+        if (!held.isEmpty()) log.warn("Lost leader locks {}: {}", held, e.getMessage());
+        held.clear();
+        try {
+            if (conn != null) conn.close();
+        } catch (SQLException ignored) {
+        }
+        conn = null;
+    }
+}
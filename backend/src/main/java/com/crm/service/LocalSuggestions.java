@@ -0,0 +1,141 @@
+package com.crm.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline message generator, used when no AI key is configured and as the fallback when the
+ * upstream fails. Patterns are compiled once and messages come from a fixed template table split
+ * around the discount, so a suggestion costs a few concatenations: no regex compilation and no
+ * {@code Random} per call. The same objective always yields the same messages.
+ */
+public final class LocalSuggestions {
+    private static final Pattern PERCENT = Pattern.compile("(\\d{1,3})\\s*%");
+    private static final Pattern FLAT = Pattern.compile("flat\\s*(\\d{1,3})");
+    private static final Pattern SPACE_OFF = Pattern.compile("(?i)(\\s)off");
+    private static final String[] DISCOUNTS = {"8%", "10%", "12%", "15%", "18%", "20%", "25%"};
+
+    private enum Audience { STUDENT, INACTIVE, HIGH_SPENDER, NEW_USER, GENERAL }
+
+    // {before, after} the discount, per audience (in enum order); the first three of each are the classic trio
+    private static final String[][][] TEMPLATES = {
+            {
+                    {"Student offer: ", " off for you, {name}. Verify and save now."},
+                    {"Hey {name}, campus special—take ", " off today."},
+                    {"{name}, unlock your student deal: ", " off. Limited time."},
+                    {"Student ID ready, {name}? Save ", " on your next order."},
+                    {"Campus exclusive for {name}: ", " off while the term lasts."},
+            },
+            {
+                    {"It’s been a while, {name}. Enjoy ", " off—come back today!"},
+                    {"{name}, we saved you ", " off your next order. Tap to return."},
+                    {"Miss you, {name}! Grab ", " off and rediscover your favorites."},
+                    {"Welcome back, {name}: ", " off is waiting for you."},
+                    {"{name}, your comeback deal: ", " off this week."},
+            },
+            {
+                    {"{name}, a thank‑you treat: ", " off for our loyal customers."},
+                    {"VIP perk unlocked, {name}: extra ", " off this week only."},
+                    {"Premium pick for you, {name}—take ", " off today."},
+                    {"{name}, as one of our best customers, enjoy ", " off."},
+                    {"Loyalty reward for {name}: ", " off your next purchase."},
+            },
+            {
+                    {"Welcome offer for you, {name}: ", " off your first order."},
+                    {"Start with a win, {name}—get ", " off at checkout."},
+                    {"Hello {name}! Claim ", " off and try us now."},
+                    {"New here, {name}? Take ", " off your first purchase."},
+                    {"{name}, your welcome gift: ", " off today."},
+            },
+            {
+                    {"Hi {name}, unlock ", " off today—limited time."},
+                    {"{name}, exclusive ", " savings just for you. Shop now."},
+                    {"Limited time: take ", " off on your next purchase, {name}!"},
+                    {"{name}, treat yourself to ", " off this week."},
+                    {"Flash deal for {name}: ", " off, today only."},
+            },
+    };
+
+    // What an objective asks for: an explicit discount ("50%", "flat 50") and the audience to address
+    private record Goal(String explicit, boolean students, Audience audience, int seed) {
+        static Goal parse(String objective) {
+            String obj = objective == null ? "" : objective.toLowerCase(Locale.ROOT);
+            String explicit = null;
+            Matcher m = PERCENT.matcher(obj);
+            if (m.find()) explicit = m.group(1) + "%";
+            if (explicit == null) {
+                m = FLAT.matcher(obj);
+                if (m.find()) explicit = m.group(1) + "%";
+            }
+            boolean students = obj.contains("student");
+            Audience audience = students ? Audience.STUDENT
+                    : obj.contains("inactive") || obj.contains("winback") || obj.contains("come back") ? Audience.INACTIVE
+                    : obj.contains("spend") || obj.contains("premium") || obj.contains("loyal") ? Audience.HIGH_SPENDER
+                    : obj.contains("new") || obj.contains("first") || obj.contains("signup") ? Audience.NEW_USER
+                    : Audience.GENERAL;
+            return new Goal(explicit, students, audience, obj.hashCode());
+        }
+    }
+
+    // Most distinct messages one objective can produce
+    public static int maxVariants() {
+        return TEMPLATES[0].length * DISCOUNTS.length;
+    }
+
+    public List<String> suggest(String objective, int variants) {
+        Goal goal = Goal.parse(objective);
+        String[][] templates = TEMPLATES[goal.audience().ordinal()];
+        int distinct = templates.length * (goal.explicit() != null ? 1 : DISCOUNTS.length);
+        int n = Math.min(variants, distinct);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // template i % T; each further round over the templates moves to the next discount, so no repeats
+            int t = i % templates.length;
+            String discount = goal.explicit() != null ? goal.explicit()
+                    : DISCOUNTS[Math.floorMod(mix(goal.seed() + t) + i / templates.length, DISCOUNTS.length)];
+            out.add(templates[t][0] + discount + templates[t][1]);
+        }
+        return out;
+    }
+
+    // Makes upstream messages honour the objective: the explicit discount, and a student cue for student offers
+    public List<String> enforce(String objective, List<String> messages, int variants) {
+        Goal goal = Goal.parse(objective);
+        List<String> adjusted = new ArrayList<>(Math.min(variants, messages.size()));
+        for (String msg : messages) {
+            String s = msg;
+            if (goal.explicit() != null) {
+                Matcher percent = PERCENT.matcher(s);
+                if (percent.find()) {
+                    s = percent.replaceFirst(Matcher.quoteReplacement(goal.explicit()));
+                } else if (s.toLowerCase(Locale.ROOT).contains(" off")) {
+                    s = SPACE_OFF.matcher(s).replaceFirst(Matcher.quoteReplacement(" " + goal.explicit() + " off"));
+                } else {
+                    s = s.endsWith("!") ? s.substring(0, s.length() - 1) + " (" + goal.explicit() + " off)!"
+                            : s + " (" + goal.explicit() + " off)";
+                }
+            }
+            if (goal.students()) {
+                String lower = s.toLowerCase(Locale.ROOT);
+                if (!lower.contains("student") && !lower.contains("campus") && !lower.contains("college")) {
+                    s = "Student offer: " + s;
+                }
+            }
+            adjusted.add(s);
+            if (adjusted.size() >= variants) break;
+        }
+        return adjusted.isEmpty() ? messages : adjusted;
+    }
+
+    // murmur3 finalizer: spreads String.hashCode so similar objectives pick unrelated discounts
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,89 @@
+package com.crm.service;
+
+import com.crm.dto.CampaignStats;
+import com.crm.model.Campaign;
+import com.crm.model.CampaignLogSummary;
+import com.crm.model.CommunicationLog;
+import com.crm.repository.CampaignLogSummaryRepository;
+import com.crm.repository.CampaignRepository;
+import com.crm.repository.CommunicationLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Keeps communication_log bounded: once a campaign is older than {@code afterDays} and has no
+ * PENDING or retryable FAILED rows, its final counts are materialized into campaign_log_summary
+ * and its rows move to communication_log_archive, all in one transaction per campaign.
+ */
+@Service
+public class LogArchiver {
+    private static final Logger log = LoggerFactory.getLogger(LogArchiver.class);
+    private static final Set<CommunicationLog.Status> IN_FLIGHT =
+            EnumSet.of(CommunicationLog.Status.PENDING, CommunicationLog.Status.FAILED);
+
+    private final CampaignRepository campaignRepository;
+    private final CommunicationLogRepository logRepository;
+    private final CampaignLogSummaryRepository summaryRepository;
+    private final LeaderElection leaderElection;
+    private final ClusterEvents clusterEvents;
+    private final TransactionTemplate tx;
+
+    @Value("${app.archive.enabled:true}")
+    private boolean enabled;
+    @Value("${app.archive.afterDays:30}")
+    private long afterDays;
+
+    public LogArchiver(CampaignRepository campaignRepository,
+                       CommunicationLogRepository logRepository,
+                       CampaignLogSummaryRepository summaryRepository,
+                       LeaderElection leaderElection,
+                       ClusterEvents clusterEvents,
+                       PlatformTransactionManager transactionManager) {
+        this.campaignRepository = campaignRepository;
+        this.logRepository = logRepository;
+        this.summaryRepository = summaryRepository;
+        this.leaderElection = leaderElection;
+        this.clusterEvents = clusterEvents;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.archive.pollMs:3600000}", initialDelayString = "${app.archive.initialDelayMs:60000}")
+    public void archiveCompleted() {
+        if (!enabled || !leaderElection.isLeader(LeaderElection.ARCHIVE)) return;
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(afterDays);
+        for (Campaign c : campaignRepository.findByCreatedAtBeforeAndArchivedAtIsNullOrderById(cutoff)) {
+            if (logRepository.existsByCampaignIdAndStatusIn(c.getId(), IN_FLIGHT)) continue;
+            archive(c.getId());
+        }
+    }
+
+    public void archive(Long campaignId) {
+        Integer moved = tx.execute(status -> {
+            CampaignStats st = logRepository.statsFor(campaignId);
+            CampaignLogSummary summary = new CampaignLogSummary();
+            summary.setCampaignId(campaignId);
+            summary.setSent(st.sent());
+            summary.setFailed(st.failed());
+            summary.setDead(st.dead());
+            summary.setSuppressed(st.suppressed());
+            summary.setTotal(st.total());
+            summaryRepository.save(summary);
+            int copied = logRepository.copyToArchive(campaignId);
+            logRepository.deleteByCampaignIdInBulk(campaignId);
+            Campaign c = campaignRepository.findById(campaignId).orElseThrow();
+            c.setArchivedAt(LocalDateTime.now());
+            return copied;
+        });
+        clusterEvents.publish(ClusterEvents.CAMPAIGNS, ClusterEvents.UPDATE, campaignId);
+        log.info("Archived {} log rows of campaign {}", moved, campaignId);
+    }
+}
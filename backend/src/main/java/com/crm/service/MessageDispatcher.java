@@ -0,0 +1,101 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.model.Customer;
+import com.crm.repository.CommunicationLogRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends campaign messages through the {@link VendorAdapter} of the campaign's channel. Logs are
+ * cut into provider-sized batches; up to the adapter's concurrency limit of batches are in
+ * flight at once, and the outcome of each message is written back to its log.
+ */
+@Service
+public class MessageDispatcher {
+    private final CommunicationLogRepository logRepository;
+    private final RetryPolicy retryPolicy;
+    private final Map<Campaign.Channel, VendorAdapter> adapters = new EnumMap<>(Campaign.Channel.class);
+    private final Map<Campaign.Channel, Semaphore> batchSlots = new EnumMap<>(Campaign.Channel.class);
+
+    public MessageDispatcher(CommunicationLogRepository logRepository, RetryPolicy retryPolicy, List<VendorAdapter> adapters) {
+        this.logRepository = logRepository;
+        this.retryPolicy = retryPolicy;
+        for (VendorAdapter a : adapters) {
+            this.adapters.put(a.channel(), a);
+            this.batchSlots.put(a.channel(), new Semaphore(Math.max(1, a.maxConcurrency())));
+        }
+    }
+
+    // Sends the given logs (customers loaded) and returns once every one has an outcome;
+    // SENT or FAILED/DEAD is set on each log and the batch is saved
+    public void send(Campaign campaign, List<CommunicationLog> logs) {
+        if (logs.isEmpty()) return;
+        VendorAdapter adapter = adapters.get(campaign.getChannel());
+        if (adapter == null) throw new IllegalStateException("No vendor adapter for channel " + campaign.getChannel());
+        Semaphore slots = batchSlots.get(campaign.getChannel());
+        int batchSize = Math.max(1, adapter.maxBatchSize());
+
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        for (int from = 0; from < logs.size(); from += batchSize) {
+            List<CommunicationLog> batch = logs.subList(from, Math.min(logs.size(), from + batchSize));
+            List<VendorAdapter.OutboundMessage> messages = new ArrayList<>(batch.size());
+            for (CommunicationLog l : batch) {
+                UUID vendorId = UUID.randomUUID();
+                l.setVendorMessageId(vendorId);
+                l.setAttempts((l.getAttempts() == null ? 0 : l.getAttempts()) + 1);
+                Customer c = l.getCustomer();
+                messages.add(new VendorAdapter.OutboundMessage(vendorId, c.getId(), c.getEmail(),
+                        campaign.getMessage().replace("{name}", c.getName() == null ? "" : c.getName())));
+            }
+            slots.acquireUninterruptibly();
+            CompletableFuture<List<VendorAdapter.SendResult>> call;
+            try {
+                call = adapter.sendBatch(messages);
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            inFlight.add(call
+                    .whenComplete((results, error) -> slots.release())
+                    .handle((results, error) -> {
+                        apply(batch, error == null ? results : null);
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).join();
+        logRepository.saveAll(logs);
+    }
+
+    // Applies a delivery receipt; a late FAILED receipt for a message we thought was sent schedules a retry
+    public void applyReceipt(CommunicationLog log, boolean delivered) {
+        if (delivered) {
+            log.setStatus(CommunicationLog.Status.SENT);
+            log.setNextAttemptAt(null);
+        } else if (log.getStatus() != CommunicationLog.Status.FAILED && log.getStatus() != CommunicationLog.Status.DEAD) {
+            retryPolicy.onFailure(log, FailureReasons.RECEIPT_FAILED);
+        }
+        logRepository.save(log);
+    }
+
+    // results == null means the whole call failed (transport error, timeout, vendor error)
+    private void apply(List<CommunicationLog> batch, List<VendorAdapter.SendResult> results) {
+        for (int i = 0; i < batch.size(); i++) {
+            CommunicationLog l = batch.get(i);
+            VendorAdapter.SendResult r = results != null && i < results.size() ? results.get(i) : null;
+            if (r != null && r.delivered()) {
+                l.setStatus(CommunicationLog.Status.SENT);
+                l.setNextAttemptAt(null);
+            } else {
+                retryPolicy.onFailure(l, r == null ? FailureReasons.VENDOR_ERROR : FailureReasons.VENDOR_FAILURE);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.crm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for an SMS/email vendor, for load-testing dispatch. Listens on
+ * {@code app.vendor.mock.port} (0 = off) and answers {@code POST /messages/batch} (see
+ * {@link HttpVendorAdapter}) after a random per-call latency plus a per-message latency,
+ * failing each message independently. {@code POST /chat/completions} is a slow stand-in for the
+ * AI upstream (point {@code GROQ_API_URL} at it) used to load-test blocking request handling.
+ * The latency is simulated on a timer, not by sleeping, so thousands of concurrent
+ * requests are held by a couple of threads.
+ */
+@Component
+public class MockVendorServer {
+    private static final Logger log = LoggerFactory.getLogger(MockVendorServer.class);
+
+    @Value("${app.vendor.mock.port:0}")
+    private int port;
+    @Value("${app.vendor.mock.minLatencyMs:20}")
+    private long minLatencyMs;
+    @Value("${app.vendor.mock.maxLatencyMs:200}")
+    private long maxLatencyMs;
+    @Value("${app.vendor.mock.perMessageLatencyMs:0.5}")
+    private double perMessageLatencyMs;
+    @Value("${app.vendor.successRate:0.9}")
+    private double successRate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer server;
+    private ScheduledExecutorService timer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (port <= 0) return;
+        timer = Executors.newScheduledThreadPool(2);
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.setExecutor(Executors.newFixedThreadPool(2));
+        server.createContext("/messages/batch", this::handle);
+        server.createContext("/chat/completions", this::handleCompletion);
+        server.start();
+        log.info("Mock vendor listening on port {}", port);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) server.stop(0);
+        if (timer != null) timer.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        List<String> ids = new ArrayList<>();
+        Object messages = objectMapper.readValue(exchange.getRequestBody(), Map.class).get("messages");
+        if (messages instanceof List<?> list) {
+            for (Object m : list) if (m instanceof Map<?, ?> msg) ids.add(String.valueOf(msg.get("vendorMessageId")));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = minLatencyMs + random.nextLong(Math.max(1, maxLatencyMs - minLatencyMs + 1))
+                + Math.round(perMessageLatencyMs * ids.size());
+        List<Map<String, String>> results = new ArrayList<>(ids.size());
+        for (String id : ids) results.add(Map.of("vendorMessageId", id, "status", random.nextDouble() < successRate ? "SENT" : "FAILED"));
+        byte[] body = objectMapper.writeValueAsBytes(Map.of("results", results));
+        timer.schedule(() -> respond(exchange, body), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void handleCompletion(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String content = "[\"Hi {name}, 10% off today\",\"{name}, your 10% code is here\",\"Welcome back {name}: 10% off\"]";
+        byte[] body = objectMapper.writeValueAsBytes(
+                Map.of("choices", List.of(Map.of("message", Map.of("role", "assistant", "content", content)))));
+        long delay = minLatencyMs + ThreadLocalRandom.current().nextLong(Math.max(1, maxLatencyMs - minLatencyMs + 1));
+        timer.schedule(() -> respond(exchange, body), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void respond(HttpExchange exchange, byte[] body) {
+        try (OutputStream out = exchange.getResponseBody()) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            out.write(body);
+        } catch (IOException e) {
+            log.debug("Mock vendor response failed: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+}
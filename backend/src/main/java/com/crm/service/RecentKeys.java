@@ -0,0 +1,26 @@
+package com.crm.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Small thread-safe LRU map of recently seen keys, used to answer ingestion retries without a database round trip
+public class RecentKeys<V> {
+    private final Map<String, V> map;
+
+    public RecentKeys(int maxSize) {
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized V get(String key) {
+        return key == null ? null : map.get(key);
+    }
+
+    public synchronized void put(String key, V value) {
+        if (key != null) map.put(key, value);
+    }
+}
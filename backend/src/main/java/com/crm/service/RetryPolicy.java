@@ -0,0 +1,52 @@
+package com.crm.service;
+
+import com.crm.model.CommunicationLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with jitter for failed sends. After {@code maxAttempts}
+ * a message is moved to the DEAD (dead-letter) state and never retried again.
+ */
+@Component
+public class RetryPolicy {
+    private final FailureReasons failureReasons;
+    @Value("${app.retry.maxAttempts:5}")
+    private int maxAttempts;
+    @Value("${app.retry.baseDelayMs:30000}")
+    private long baseDelayMs;
+    @Value("${app.retry.maxDelayMs:3600000}")
+    private long maxDelayMs;
+
+    public RetryPolicy(FailureReasons failureReasons) {
+        this.failureReasons = failureReasons;
+    }
+
+    // Records a failed attempt: schedules the next retry or dead-letters the message
+    public void onFailure(CommunicationLog log, String reason) {
+        int attempts = log.getAttempts() == null ? 0 : log.getAttempts();
+        log.setFailureReason(failureReasons.of(reason));
+        if (attempts >= maxAttempts) {
+            log.setStatus(CommunicationLog.Status.DEAD);
+            log.setNextAttemptAt(null);
+        } else {
+            log.setStatus(CommunicationLog.Status.FAILED);
+            log.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs(attempts))));
+        }
+    }
+
+    // "Equal jitter": half of the capped exponential delay is fixed, the other half random,
+    // so retries of a large failed batch spread out instead of arriving in one burst
+    long delayMs(int attempts) {
+        int shift = Math.min(Math.max(attempts - 1, 0), 30);
+        long exp = Math.min(maxDelayMs, baseDelayMs << shift);
+        long half = exp / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    public int getMaxAttempts() { return maxAttempts; }
+}
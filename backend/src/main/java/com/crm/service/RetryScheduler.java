@@ -0,0 +1,70 @@
+package com.crm.service;
+
+import com.crm.model.CommunicationLog;
+import com.crm.repository.CommunicationLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-sends FAILED messages whose next attempt is due. Each tick reads at most
+ * {@code batchSize} rows through the (status, next_attempt_at) index, so the cost
+ * depends on how many retries are due, not on the size of communication_log.
+ * FAILED rows from before retry scheduling (null next_attempt_at) are made due
+ * once, on the first tick this node runs as leader.
+ */
+@Service
+public class RetryScheduler {
+    private static final Logger log = LoggerFactory.getLogger(RetryScheduler.class);
+    private final CommunicationLogRepository logRepository;
+    private final MessageDispatcher messageDispatcher;
+    private final LeaderElection leaderElection;
+    private final TransactionTemplate tx;
+    private volatile boolean legacyScheduled;
+
+    @Value("${app.retry.enabled:true}")
+    private boolean enabled;
+    @Value("${app.retry.batchSize:500}")
+    private int batchSize;
+
+    public RetryScheduler(CommunicationLogRepository logRepository, MessageDispatcher messageDispatcher,
+                          LeaderElection leaderElection, PlatformTransactionManager transactionManager) {
+        this.logRepository = logRepository;
+        this.messageDispatcher = messageDispatcher;
+        this.leaderElection = leaderElection;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.retry.pollMs:10000}")
+    public void tick() {
+        if (!enabled || !leaderElection.isLeader(LeaderElection.RETRY)) return;
+        if (!legacyScheduled) scheduleLegacyFailures();
+        List<CommunicationLog> due;
+        do {
+            due = logRepository.findDueRetries(CommunicationLog.Status.FAILED, LocalDateTime.now(), Limit.of(batchSize));
+            // retries of several campaigns can be due at once; each campaign goes out on its own channel
+            Map<Long, List<CommunicationLog>> byCampaign = new LinkedHashMap<>();
+            for (CommunicationLog l : due) byCampaign.computeIfAbsent(l.getCampaign().getId(), k -> new ArrayList<>()).add(l);
+            for (List<CommunicationLog> logs : byCampaign.values()) messageDispatcher.send(logs.get(0).getCampaign(), logs);
+            long sent = due.stream().filter(l -> l.getStatus() == CommunicationLog.Status.SENT).count();
+            if (!due.isEmpty()) log.debug("Retried {} due messages, {} sent", due.size(), sent);
+        } while (due.size() == batchSize);
+    }
+
+    private void scheduleLegacyFailures() {
+        Integer n = tx.execute(status -> logRepository.scheduleUnscheduled(CommunicationLog.Status.FAILED, LocalDateTime.now()));
+        legacyScheduled = true;
+        if (n != null && n > 0) log.info("Scheduled {} FAILED messages that had no next attempt time", n);
+    }
+}
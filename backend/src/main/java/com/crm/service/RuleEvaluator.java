@@ -2,77 +2,147 @@ package com.crm.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.crm.dto.CustomerRuleRow;
+import com.crm.dto.OrderStats;
 import com.crm.model.Customer;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses rule JSON into a {@link CompiledRule}. Rules are groups ({@code type: "group"},
+ * {@code op: AND|OR}, {@code children}) of simple rules ({@code field}, {@code operator}, {@code value}).
+ *
+ * Fields: totalSpend, totalVisits, inactiveDays, orderCount, avgOrderValue, firstOrderDaysAgo,
+ * and the windowed spendInLastDays / ordersInLastDays, which also take {@code days}.
+ * Unknown fields or operators are rejected with an IllegalArgumentException.
+ */
 public class RuleEvaluator {
+    public static final Set<String> FIELDS = Set.of(
+            "totalSpend", "totalVisits", "inactiveDays",
+            "orderCount", "avgOrderValue", "firstOrderDaysAgo",
+            "spendInLastDays", "ordersInLastDays");
+    private static final Set<String> OPERATORS = Set.of(">", ">=", "<", "<=", "==", "!=");
+    // days value used for "never" (no activity / no orders)
+    private static final double NEVER = 999999.0;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    @FunctionalInterface
+    private interface Metric {
+        double value(CustomerRuleRow c, OrderStats o, LocalDateTime now);
+    }
+
     public boolean matches(Customer customer, String ruleJson) {
-        if (ruleJson == null || ruleJson.isBlank()) return true;
         try {
-            JsonNode root = objectMapper.readTree(ruleJson);
-            return evaluateNode(customer, root);
-        } catch (Exception e) {
+            return compile(ruleJson).matches(customer);
+        } catch (IllegalArgumentException e) {
             return false;
         }
     }
 
-    private boolean evaluateNode(Customer c, JsonNode node) {
+    public CompiledRule compile(String ruleJson) {
+        if (ruleJson == null || ruleJson.isBlank()) return CompiledRule.ALWAYS;
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(ruleJson);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid rule JSON");
+        }
+        List<Integer> windows = new ArrayList<>();
+        boolean[] usesOrders = {false};
+        CompiledRule.Node node = compileNode(root, windows, usesOrders);
+        return new CompiledRule(node, windows, usesOrders[0]);
+    }
+
+    private CompiledRule.Node compileNode(JsonNode node, List<Integer> windows, boolean[] usesOrders) {
         String type = node.path("type").asText();
         if ("group".equalsIgnoreCase(type)) {
-            String op = node.path("op").asText("AND");
-            boolean result = "AND".equalsIgnoreCase(op);
-            for (JsonNode child : node.path("children")) {
-                boolean childRes = evaluateNode(c, child);
-                if ("AND".equalsIgnoreCase(op)) {
-                    result = result && childRes;
-                } else {
-                    result = result || childRes;
-                }
+            boolean and = "AND".equalsIgnoreCase(node.path("op").asText("AND"));
+            List<CompiledRule.Node> children = new ArrayList<>();
+            for (JsonNode child : node.path("children")) children.add(compileNode(child, windows, usesOrders));
+            CompiledRule.Node[] kids = children.toArray(new CompiledRule.Node[0]);
+            if (and) {
+                return (c, o, now) -> {
+                    for (CompiledRule.Node k : kids) if (!k.test(c, o, now)) return false;
+                    return true;
+                };
             }
-            return result;
-        } else { // simple rule
-            String field = node.path("field").asText();
-            String operator = node.path("operator").asText();
-            double value = node.path("value").asDouble();
-            double current;
-            switch (field) {
-                case "totalSpend":
-                    current = c.getTotalSpend() == null ? 0.0 : c.getTotalSpend();
-                    break;
-                case "totalVisits":
-                    current = c.getTotalVisits() == null ? 0.0 : c.getTotalVisits();
-                    break;
-                case "inactiveDays":
-                    if (c.getLastActiveAt() == null) {
-                        current = 999999.0;
-                    } else {
-                        long days = java.time.Duration.between(c.getLastActiveAt(), java.time.LocalDateTime.now()).toDays();
-                        current = (double) days;
-                    }
-                    break;
-                default:
-                    current = 0.0;
-                    break;
+            return (c, o, now) -> {
+                for (CompiledRule.Node k : kids) if (k.test(c, o, now)) return true;
+                return false;
+            };
+        }
+
+        // simple rule
+        String field = node.path("field").asText();
+        String operator = node.path("operator").asText();
+        if (!FIELDS.contains(field)) throw new IllegalArgumentException("Unknown rule field: " + field);
+        if (!OPERATORS.contains(operator)) throw new IllegalArgumentException("Unknown rule operator: " + operator);
+        double value = numericValue(field, node.path("value"));
+        Metric metric = metric(field, node, windows, usesOrders);
+        switch (operator) {
+            case ">": return (c, o, now) -> metric.value(c, o, now) > value;
+            case ">=": return (c, o, now) -> metric.value(c, o, now) >= value;
+            case "<": return (c, o, now) -> metric.value(c, o, now) < value;
+            case "<=": return (c, o, now) -> metric.value(c, o, now) <= value;
+            case "==": return (c, o, now) -> metric.value(c, o, now) == value;
+            default: return (c, o, now) -> metric.value(c, o, now) != value;
+        }
+    }
+
+    private Metric metric(String field, JsonNode node, List<Integer> windows, boolean[] usesOrders) {
+        switch (field) {
+            case "totalSpend":
+                return (c, o, now) -> c.totalSpend();
+            case "totalVisits":
+                return (c, o, now) -> c.totalVisits();
+            case "inactiveDays":
+                return (c, o, now) -> c.lastActiveAt() == null
+                        ? NEVER : (double) Duration.between(c.lastActiveAt(), now).toDays();
+            default:
+                break;
+        }
+        usesOrders[0] = true;
+        switch (field) {
+            case "orderCount":
+                return (c, o, now) -> o.orderCount();
+            case "avgOrderValue":
+                return (c, o, now) -> o.avgOrderValue();
+            case "firstOrderDaysAgo":
+                return (c, o, now) -> o.firstOrderAt() == null
+                        ? NEVER : (double) Duration.between(o.firstOrderAt(), now).toDays();
+            case "spendInLastDays": {
+                int slot = windowSlot(field, node, windows);
+                return (c, o, now) -> o.spendIn(slot);
             }
-            switch (operator) {
-                case ">":
-                    return current > value;
-                case ">=":
-                    return current >= value;
-                case "<":
-                    return current < value;
-                case "<=":
-                    return current <= value;
-                case "==":
-                    return current == value;
-                case "!=":
-                    return current != value;
-                default:
-                    return false;
+            default: { // ordersInLastDays
+                int slot = windowSlot(field, node, windows);
+                return (c, o, now) -> o.ordersIn(slot);
             }
         }
     }
-}
 
+    private static double numericValue(String field, JsonNode v) {
+        if (v.isNumber()) return v.asDouble();
+        try {
+            return Double.parseDouble(v.asText());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Non-numeric value for rule field: " + field);
+        }
+    }
 
+    private int windowSlot(String field, JsonNode node, List<Integer> windows) {
+        int days = node.path("days").asInt(0);
+        if (days <= 0) throw new IllegalArgumentException(field + " requires a positive 'days'");
+        int slot = windows.indexOf(days);
+        if (slot < 0) {
+            windows.add(days);
+            slot = windows.size() - 1;
+        }
+        return slot;
+    }
+}
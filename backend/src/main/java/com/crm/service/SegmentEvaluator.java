@@ -0,0 +1,171 @@
+package com.crm.service;
+
+import com.crm.dto.OrderStats;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.CustomerScanRepository;
+import com.crm.repository.OrderHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Evaluates segment rules over the customer base. The rule is compiled once; if it uses
+ * order-history fields, each range is scanned in sub-ranges of {@link #HISTORY_IDS_PER_SCAN}
+ * ids, and the aggregates of a sub-range come from one grouped query hash-joined to its
+ * customer rows by id, so heap use does not grow with the customer count.
+ *
+ * The customer id space is split into ranges (several per worker), each read through its
+ * own JDBC cursor of rule columns on a dedicated work-stealing pool; per-range counts or
+ * id lists are merged at the end. Scans check a {@link Cancellation} between rows.
+ *
+ * Every range in flight holds a pooled connection, so in-flight ranges across all evaluations
+ * are capped by {@code app.segments.maxConcurrentScans} (default half the connection pool),
+ * leaving connections for request handling. Callers must not hold a connection of their own
+ * while they wait for an evaluation (i.e. not call it inside a transaction): with enough such
+ * callers the pool runs dry and the scans they wait for can never start.
+ */
+@Service
+public class SegmentEvaluator {
+    private static final int RANGES_PER_WORKER = 4;
+    // ids per order-history aggregate query; bounds the aggregates held by one range in flight
+    private static final long HISTORY_IDS_PER_SCAN = 10_000;
+
+    private final CustomerRepository customerRepository;
+    private final CustomerScanRepository customerScanRepository;
+    private final OrderHistoryRepository orderHistoryRepository;
+    private final RuleEvaluator ruleEvaluator = new RuleEvaluator();
+    private final ForkJoinPool pool;
+    private final int minRangeSize;
+    private final Semaphore scanSlots;
+    // running previews by client-supplied id, so a newer preview can cancel an abandoned one
+    private final Map<String, Cancellation> previews = new ConcurrentHashMap<>();
+
+    private record Partial(long count, long[] ids) {}
+
+    public SegmentEvaluator(CustomerRepository customerRepository,
+                            CustomerScanRepository customerScanRepository,
+                            OrderHistoryRepository orderHistoryRepository,
+                            @Value("${app.segments.parallelism:0}") int parallelism,
+                            @Value("${app.segments.minRangeSize:2000}") int minRangeSize,
+                            @Value("${app.segments.maxConcurrentScans:0}") int maxConcurrentScans,
+                            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        this.customerRepository = customerRepository;
+        this.customerScanRepository = customerScanRepository;
+        this.orderHistoryRepository = orderHistoryRepository;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.minRangeSize = minRangeSize;
+        this.scanSlots = new Semaphore(maxConcurrentScans > 0 ? maxConcurrentScans : Math.max(1, connectionPoolSize / 2), true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Validates rule JSON, throwing IllegalArgumentException on unknown fields/operators
+    public CompiledRule compile(String ruleJson) {
+        return ruleEvaluator.compile(ruleJson);
+    }
+
+    public long count(String ruleJson) {
+        return count(ruleJson, Cancellation.NONE);
+    }
+
+    public long count(String ruleJson, Cancellation cancel) {
+        return evaluate(compile(ruleJson), cancel, false).count();
+    }
+
+    // Ids of matching customers, ascending
+    public long[] matchingIds(String ruleJson) {
+        return evaluate(compile(ruleJson), Cancellation.NONE, true).ids();
+    }
+
+    // Registers a preview under previewId, cancelling any earlier preview still running with that id
+    public Cancellation startPreview(String previewId) {
+        Cancellation token = new Cancellation();
+        if (previewId == null || previewId.isBlank()) return token;
+        Cancellation previous = previews.put(previewId, token);
+        if (previous != null) previous.cancel();
+        return token;
+    }
+
+    public void finishPreview(String previewId, Cancellation token) {
+        if (previewId != null) previews.remove(previewId, token);
+    }
+
+    public boolean cancelPreview(String previewId) {
+        Cancellation token = previews.remove(previewId);
+        if (token != null) token.cancel();
+        return token != null;
+    }
+
+    private Partial evaluate(CompiledRule rule, Cancellation cancel, boolean collect) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Object[] bounds = customerRepository.idBounds().get(0);
+        if (bounds[0] == null) return new Partial(0, new long[0]);
+        long min = ((Number) bounds[0]).longValue();
+        long max = ((Number) bounds[1]).longValue();
+        long ranges = (long) pool.getParallelism() * RANGES_PER_WORKER;
+        long span = Math.max(minRangeSize, (max - min + ranges) / ranges);
+
+        List<ForkJoinTask<Partial>> tasks = new ArrayList<>();
+        for (long lo = min; lo <= max; lo += span) {
+            long from = lo, to = Math.min(max, lo + span - 1);
+            tasks.add(pool.submit(() -> scanRange(from, to, rule, now, cancel, collect)));
+        }
+
+        // merge in range order, so collected ids stay ascending
+        long count = 0;
+        List<long[]> idParts = new ArrayList<>();
+        for (ForkJoinTask<Partial> t : tasks) {
+            Partial p = t.join();
+            count += p.count();
+            if (collect) idParts.add(p.ids());
+        }
+        if (!collect) return new Partial(count, null);
+        long[] ids = new long[(int) count];
+        int pos = 0;
+        for (long[] part : idParts) {
+            System.arraycopy(part, 0, ids, pos, part.length);
+            pos += part.length;
+        }
+        return new Partial(count, ids);
+    }
+
+    private Partial scanRange(long from, long to, CompiledRule rule,
+                              LocalDateTime now, Cancellation cancel, boolean collect) {
+        long[] count = {0};
+        long[][] ids = {collect ? new long[64] : null};
+        long step = rule.usesOrderHistory() ? HISTORY_IDS_PER_SCAN : to - from + 1;
+        scanSlots.acquireUninterruptibly();
+        try {
+            for (long lo = from; lo <= to && !cancel.isCancelled(); lo += step) {
+                long hi = Math.min(to, lo + step - 1);
+                Map<Long, OrderStats> history = rule.usesOrderHistory()
+                        ? orderHistoryRepository.aggregate(rule.getWindows(), lo, hi) : Map.of();
+                customerScanRepository.scanRuleRows(lo, hi, cancel, row -> {
+                    if (!rule.matches(row, history.get(row.id()), now)) return;
+                    if (collect) {
+                        if (count[0] == ids[0].length) ids[0] = Arrays.copyOf(ids[0], ids[0].length * 2);
+                        ids[0][(int) count[0]] = row.id();
+                    }
+                    count[0]++;
+                });
+            }
+        } finally {
+            scanSlots.release();
+        }
+        return new Partial(count[0], collect ? Arrays.copyOf(ids[0], (int) count[0]) : null);
+    }
+}
@@ -0,0 +1,122 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.repository.CampaignRepository;
+import com.crm.repository.CommunicationLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Releases PENDING logs of campaigns whose send window is open. A global token bucket
+ * caps total throughput across all running campaigns; each tick its tokens are dealt out
+ * round-robin in small quanta, so a huge campaign cannot starve small ones. Campaigns
+ * with {@code maxPerSecond} are additionally limited by their own bucket.
+ */
+@Service
+public class SendScheduler {
+    private static final Logger log = LoggerFactory.getLogger(SendScheduler.class);
+    private final CampaignRepository campaignRepository;
+    private final CommunicationLogRepository logRepository;
+    private final MessageDispatcher messageDispatcher;
+    private final FrequencyCapService frequencyCapService;
+    private final LeaderElection leaderElection;
+    private final ClusterEvents clusterEvents;
+    private final TokenBucket globalBucket;
+    private final Map<Long, TokenBucket> campaignBuckets = new ConcurrentHashMap<>();
+
+    @Value("${app.dispatch.enabled:true}")
+    private boolean enabled;
+    @Value("${app.dispatch.quantum:50}")
+    private int quantum;
+
+    public SendScheduler(CampaignRepository campaignRepository,
+                         CommunicationLogRepository logRepository,
+                         MessageDispatcher messageDispatcher,
+                         FrequencyCapService frequencyCapService,
+                         LeaderElection leaderElection,
+                         ClusterEvents clusterEvents,
+                         @Value("${app.dispatch.globalRatePerSecond:200}") double globalRatePerSecond) {
+        this.campaignRepository = campaignRepository;
+        this.logRepository = logRepository;
+        this.messageDispatcher = messageDispatcher;
+        this.frequencyCapService = frequencyCapService;
+        this.leaderElection = leaderElection;
+        this.clusterEvents = clusterEvents;
+        this.globalBucket = new TokenBucket(globalRatePerSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dispatch.pollMs:250}")
+    public void tick() {
+        // one dispatcher per cluster, so the global rate limit holds across replicas
+        if (!enabled || !leaderElection.isLeader(LeaderElection.DISPATCH)) return;
+        LocalDateTime now = LocalDateTime.now();
+        LocalTime time = now.toLocalTime();
+        List<Campaign> active = new ArrayList<>();
+        for (Campaign c : campaignRepository.findByScheduledAtLessThanEqualAndDispatchedAtIsNullOrderByScheduledAt(now)) {
+            if (!c.inQuietHours(time)) active.add(c);
+        }
+        if (active.isEmpty()) return;
+
+        // Deal global tokens round-robin until they run out or no campaign can take more
+        List<Campaign> round = active;
+        while (!round.isEmpty() && globalBucket.available() > 0) {
+            List<Campaign> next = new ArrayList<>();
+            for (Campaign c : round) {
+                int granted = globalBucket.tryAcquire(quantum);
+                if (granted == 0) return;
+                TokenBucket own = bucketFor(c);
+                if (own != null) {
+                    int allowed = own.tryAcquire(granted);
+                    globalBucket.release(granted - allowed);
+                    granted = allowed;
+                    if (granted == 0) continue;
+                }
+                int sent = release(c, granted);
+                // tokens not spent on a send go back: fewer logs pending, or recipients suppressed by the cap
+                if (sent < granted) {
+                    globalBucket.release(granted - sent);
+                    if (own != null) own.release(granted - sent);
+                }
+                if (c.getDispatchedAt() == null) next.add(c);
+            }
+            round = next;
+        }
+    }
+
+    // Takes up to n PENDING logs of the campaign, suppresses customers that reached the frequency cap
+    // since fan-out and sends the rest; marks the campaign dispatched when none are left. Returns the
+    // number handed to the vendor (suppressed logs are final and take no rate)
+    private int release(Campaign c, int n) {
+        List<CommunicationLog> batch = logRepository.findByCampaignIdAndStatusOrderById(
+                c.getId(), CommunicationLog.Status.PENDING, Limit.of(n));
+        List<CommunicationLog> send = frequencyCapService.dropCapped(batch);
+        messageDispatcher.send(c, send);
+        if (batch.size() < n) {
+            c.setDispatchedAt(LocalDateTime.now());
+            campaignRepository.save(c);
+            campaignBuckets.remove(c.getId());
+            clusterEvents.publish(ClusterEvents.CAMPAIGNS, ClusterEvents.UPDATE, c.getId());
+            log.debug("Campaign {} fully dispatched", c.getId());
+        }
+        return send.size();
+    }
+
+    private TokenBucket bucketFor(Campaign c) {
+        Integer rate = c.getMaxPerSecond();
+        if (rate == null || rate <= 0) return null;
+        return campaignBuckets.compute(c.getId(), (id, b) ->
+                b != null && b.getRatePerSecond() == rate ? b : new TokenBucket(rate));
+    }
+}
@@ -0,0 +1,62 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process provider used when no vendor URL is configured. Each call costs a fixed latency
+ * plus a per-message latency, so the gain from batching can be measured locally; every message
+ * fails independently with probability {@code 1 - successRate} and a whole call fails with
+ * probability {@code batchFailureRate}.
+ */
+public class SimulatedVendorAdapter implements VendorAdapter {
+    private final Campaign.Channel channel;
+    private final int maxBatchSize;
+    private final int maxConcurrency;
+    private final double successRate;
+    private final double batchFailureRate;
+    private final long callLatencyMs;
+    private final double perMessageLatencyMs;
+
+    public SimulatedVendorAdapter(Campaign.Channel channel, int maxBatchSize, int maxConcurrency,
+                                  double successRate, double batchFailureRate,
+                                  long callLatencyMs, double perMessageLatencyMs) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize;
+        this.maxConcurrency = maxConcurrency;
+        this.successRate = successRate;
+        this.batchFailureRate = batchFailureRate;
+        this.callLatencyMs = callLatencyMs;
+        this.perMessageLatencyMs = perMessageLatencyMs;
+    }
+
+    @Override
+    public Campaign.Channel channel() { return channel; }
+
+    @Override
+    public int maxBatchSize() { return maxBatchSize; }
+
+    @Override
+    public int maxConcurrency() { return maxConcurrency; }
+
+    @Override
+    public CompletableFuture<List<SendResult>> sendBatch(List<OutboundMessage> batch) {
+        long latency = callLatencyMs + Math.round(perMessageLatencyMs * batch.size());
+        Executor afterLatency = CompletableFuture.delayedExecutor(latency, TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < batchFailureRate) {
+                throw new IllegalStateException("Simulated " + channel + " batch failure");
+            }
+            List<SendResult> results = new ArrayList<>(batch.size());
+            for (OutboundMessage m : batch) results.add(new SendResult(m.vendorMessageId(), random.nextDouble() < successRate));
+            return results;
+        }, afterLatency);
+    }
+}
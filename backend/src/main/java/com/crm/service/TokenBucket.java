@@ -0,0 +1,46 @@
+package com.crm.service;
+
+/**
+ * Token bucket refilled continuously at {@code ratePerSecond}, holding at most one
+ * second's worth of tokens. Thread-safe.
+ */
+public class TokenBucket {
+    private final double ratePerSecond;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+        this.capacity = Math.max(1.0, ratePerSecond);
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // Number of whole tokens currently available, without taking them
+    public synchronized int available() {
+        refill();
+        return (int) tokens;
+    }
+
+    // Takes up to n tokens and returns how many were granted (possibly 0)
+    public synchronized int tryAcquire(int n) {
+        refill();
+        int granted = (int) Math.min(n, Math.floor(tokens));
+        tokens -= granted;
+        return granted;
+    }
+
+    // Returns unused tokens, e.g. when fewer messages were pending than were granted
+    public synchronized void release(int n) {
+        tokens = Math.min(capacity, tokens + n);
+    }
+
+    public double getRatePerSecond() { return ratePerSecond; }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * ratePerSecond);
+        lastRefillNanos = now;
+    }
+}
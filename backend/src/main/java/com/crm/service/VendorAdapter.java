@@ -0,0 +1,27 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A message provider for one channel. Providers accept many recipients per API call, so the
+ * {@link MessageDispatcher} hands an adapter batches of at most {@link #maxBatchSize()} messages
+ * and keeps no more than {@link #maxConcurrency()} batches outstanding per adapter.
+ */
+public interface VendorAdapter {
+    record OutboundMessage(UUID vendorMessageId, Long customerId, String to, String body) {}
+
+    record SendResult(UUID vendorMessageId, boolean delivered) {}
+
+    Campaign.Channel channel();
+
+    int maxBatchSize();
+
+    int maxConcurrency();
+
+    // One result per message, in the order given; completes exceptionally if the whole call failed
+    CompletableFuture<List<SendResult>> sendBatch(List<OutboundMessage> batch);
+}
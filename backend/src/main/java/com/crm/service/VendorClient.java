@@ -0,0 +1,77 @@
+package com.crm.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Non-blocking JSON client for vendor calls on the shared {@link HttpClient}. Requests complete on
+ * the client's selector instead of holding a thread each; a semaphore bounds how many are in flight,
+ * so callers slow down (rather than queue without limit) when the vendor falls behind.
+ */
+@Component
+public class VendorClient {
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<>() {};
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore inFlight;
+    private final Duration requestTimeout;
+
+    public VendorClient(HttpClient httpClient,
+                        @Value("${app.vendor.maxInFlight:1000}") int maxInFlight,
+                        @Value("${app.http.readTimeoutMs:5000}") long requestTimeoutMs) {
+        this.httpClient = httpClient;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+    }
+
+    // Waits only for an in-flight permit, never for the response; non-2xx responses complete exceptionally
+    public CompletableFuture<Map<String, Object>> postJson(String url, Map<String, ?> body) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> inFlight.release())
+                .thenApply(this::parse);
+    }
+
+    public int available() {
+        return inFlight.availablePermits();
+    }
+
+    private Map<String, Object> parse(HttpResponse<byte[]> response) {
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Vendor returned HTTP " + response.statusCode());
+        }
+        if (response.body().length == 0) return Map.of();
+        try {
+            return objectMapper.readValue(response.body(), JSON_MAP);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
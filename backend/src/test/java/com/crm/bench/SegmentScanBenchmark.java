@@ -0,0 +1,94 @@
+package com.crm.bench;
+
+import com.crm.CrmApplication;
+import com.crm.service.SegmentEvaluator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Segment evaluation time against embedded Postgres as the range-scan pool grows. Each parallelism
+ * runs in its own fork with a fresh database of {@code customers} rows; with enough cores the time
+ * should fall close to 1/parallelism until the database or the scan cap becomes the bottleneck.
+ * Run with {@code ./mvnw -Pbenchmark test -Dtest=SegmentScanBenchmark}; results are written to
+ * {@code target/benchmark/segment-scan.json}.
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SegmentScanBenchmark {
+    private static final String RULE = "{\"type\":\"group\",\"op\":\"AND\",\"children\":[" +
+            "{\"type\":\"rule\",\"field\":\"totalSpend\",\"operator\":\">\",\"value\":2500}," +
+            "{\"type\":\"rule\",\"field\":\"inactiveDays\",\"operator\":\"<\",\"value\":90}]}";
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param("500000")
+    public int customers;
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private SegmentEvaluator evaluator;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        context = new SpringApplicationBuilder(CrmApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.datasource.hikari.maximum-pool-size=20",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=WARN",
+                "--app.segments.parallelism=" + parallelism);
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        jdbc.update("insert into customers (name, email, total_visits, total_spend, last_active_at, created_at) " +
+                "select 'Customer ' || g, 'c' || g || '@bench.test', g % 20, (g::bigint * 7919) % 5000, " +
+                "now() - (g % 365) * interval '1 day', now() from generate_series(1, ?) g", customers);
+        jdbc.execute("analyze customers");
+        evaluator = context.getBean(SegmentEvaluator.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public long count() {
+        return evaluator.count(RULE);
+    }
+
+    @Benchmark
+    public long[] matchingIds() {
+        return evaluator.matchingIds(RULE);
+    }
+
+    @Test
+    void run() throws Exception {
+        new java.io.File("target/benchmark").mkdirs();
+        new Runner(new OptionsBuilder()
+                .include(SegmentScanBenchmark.class.getName())
+                .resultFormat(org.openjdk.jmh.results.format.ResultFormatType.JSON)
+                .result("target/benchmark/segment-scan.json")
+                .build()).run();
+    }
+}
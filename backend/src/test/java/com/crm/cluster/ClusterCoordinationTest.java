@@ -0,0 +1,129 @@
+package com.crm.cluster;
+
+import com.crm.CrmApplication;
+import com.crm.dto.ClusterMemberDto;
+import com.crm.model.Customer;
+import com.crm.service.ClusterEvents;
+import com.crm.service.ClusterMembership;
+import com.crm.service.IngestionService;
+import com.crm.service.LeaderElection;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two app instances in one JVM against one embedded Postgres: heartbeat membership, advisory-lock
+ * leadership with failover, and LISTEN/NOTIFY delivery between the nodes. Runs with {@code -Pload-test}.
+ */
+@Tag("cluster")
+class ClusterCoordinationTest {
+    private static EmbeddedPostgres postgres;
+    private static ConfigurableApplicationContext a;
+    private static ConfigurableApplicationContext b;
+
+    @BeforeAll
+    static void start() throws IOException {
+        postgres = EmbeddedPostgres.start();
+        // one after the other, so only the first node creates the schema
+        a = node("node-a");
+        b = node("node-b");
+    }
+
+    @AfterAll
+    static void stop() throws IOException {
+        if (b != null) b.close();
+        if (a != null) a.close();
+        postgres.close();
+    }
+
+    private static ConfigurableApplicationContext node(String id) {
+        // command-line arguments, so they win over the H2 settings in the test application.properties
+        return new SpringApplicationBuilder(CrmApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.com.crm=INFO",
+                "--app.cluster.nodeId=" + id,
+                "--app.cluster.heartbeatMs=200",
+                "--app.cluster.deadAfterMs=2000");
+    }
+
+    @Test
+    void bothNodesHeartbeat() {
+        ClusterMembership membership = a.getBean(ClusterMembership.class);
+        await("both nodes in worker_heartbeat", () -> memberIds(membership).equals(Set.of("node-a", "node-b")));
+        assertEquals(memberIds(membership), memberIds(b.getBean(ClusterMembership.class)));
+    }
+
+    @Test
+    void oneLeaderPerJobAndFailover() {
+        LeaderElection leaderA = a.getBean(LeaderElection.class);
+        LeaderElection leaderB = b.getBean(LeaderElection.class);
+        assertTrue(leaderA.isLeader("test-job"));
+        assertFalse(leaderB.isLeader("test-job"));
+        assertTrue(leaderA.isLeader("test-job"), "leadership is kept between ticks");
+
+        leaderA.release(); // what a crashed node's closed session does
+        await("node-b takes over", () -> leaderB.isLeader("test-job"));
+        assertFalse(leaderA.isLeader("test-job"));
+    }
+
+    @Test
+    void customerInsertIsBroadcastToTheOtherNode() {
+        CompletableFuture<ClusterEvents.Event> received = new CompletableFuture<>();
+        b.getBean(ClusterEvents.class).subscribe(ClusterEvents.CUSTOMERS, received::complete);
+        IngestionService ingestion = a.getBean(IngestionService.class);
+        // the listener connects asynchronously after startup; keep inserting until node-b hears one
+        await("node-b receives node-a's customer event", () -> {
+            Customer c = new Customer();
+            c.setName("Cluster");
+            c.setEmail("cluster-" + System.nanoTime() + "@example.com");
+            ingestion.upsertCustomer(c, false);
+            try {
+                received.get(500, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        });
+        ClusterEvents.Event event = received.join();
+        assertEquals("node-a", event.node());
+        assertEquals(ClusterEvents.INSERT, event.op());
+    }
+
+    private static Set<String> memberIds(ClusterMembership membership) {
+        return membership.members().stream().map(ClusterMemberDto::nodeId).collect(Collectors.toSet());
+    }
+
+    private static void await(String what, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) throw new AssertionError("timed out waiting for " + what);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.crm.config;
+
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Full OAuth2 login against a stub provider, then token-only (sessionless) access and refresh
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:auth;MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+class StatelessAuthTests {
+    static final StubIdentityProvider idp = StubIdentityProvider.start();
+
+    @DynamicPropertySource
+    static void oauth(DynamicPropertyRegistry registry) {
+        registry.add("GOOGLE_CLIENT_ID", () -> "stub-client");
+        registry.add("GOOGLE_CLIENT_SECRET", () -> "stub-secret");
+        // the test application.properties replaces the main one, so the registration is not mapped from the env names
+        registry.add("spring.security.oauth2.client.registration.google.client-id", () -> "stub-client");
+        registry.add("spring.security.oauth2.client.registration.google.client-secret", () -> "stub-secret");
+        registry.add("app.auth.tokenSecret", () -> "test-secret");
+        // no openid scope: plain OAuth2 user-info instead of ID token validation
+        registry.add("spring.security.oauth2.client.registration.google.scope", () -> "profile,email");
+        registry.add("spring.security.oauth2.client.provider.google.authorization-uri", () -> idp.url("/authorize"));
+        registry.add("spring.security.oauth2.client.provider.google.token-uri", () -> idp.url("/token"));
+        registry.add("spring.security.oauth2.client.provider.google.user-info-uri", () -> idp.url("/userinfo"));
+    }
+
+    @AfterAll
+    static void stopProvider() {
+        idp.stop();
+    }
+
+    @Autowired MockMvc mvc;
+
+    @Test
+    void loginIssuesTokensThatAuthenticateWithoutASession() throws Exception {
+        mvc.perform(get("/api/me")).andExpect(status().isUnauthorized());
+
+        MvcResult authorize = mvc.perform(get("/oauth2/authorization/google"))
+                .andExpect(status().is3xxRedirection()).andReturn();
+        String location = authorize.getResponse().getRedirectedUrl();
+        assertTrue(location.startsWith(idp.url("/authorize")), location);
+        String state = URLDecoder.decode(UriComponentsBuilder.fromUriString(location).build()
+                .getQueryParams().getFirst("state"), StandardCharsets.UTF_8);
+        Cookie pending = authorize.getResponse().getCookie(CookieOAuth2AuthorizationRequestRepository.COOKIE);
+        assertNotNull(pending);
+        assertNull(authorize.getRequest().getSession(false));
+
+        MvcResult callback = mvc.perform(get("/login/oauth2/code/google")
+                        .param("code", "stub-code").param("state", state).cookie(pending))
+                .andExpect(status().is3xxRedirection()).andReturn();
+        Cookie access = callback.getResponse().getCookie(TokenAuthenticationFilter.ACCESS_COOKIE);
+        Cookie refresh = callback.getResponse().getCookie(TokenAuthenticationFilter.REFRESH_COOKIE);
+        assertNotNull(access);
+        assertNotNull(refresh);
+        assertNull(callback.getRequest().getSession(false));
+
+        mvc.perform(get("/api/me").cookie(access))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(StubIdentityProvider.SUBJECT));
+
+        // refresh cookie alone: a new access token is issued on the same response
+        MvcResult refreshed = mvc.perform(get("/api/me").cookie(refresh)).andExpect(status().isOk()).andReturn();
+        assertNotNull(refreshed.getResponse().getCookie(TokenAuthenticationFilter.ACCESS_COOKIE));
+
+        // a streamed list completes in an async re-dispatch, which has no session to take the login from
+        MvcResult streamed = mvc.perform(get("/api/customers").cookie(access)).andReturn();
+        assertTrue(streamed.getRequest().isAsyncStarted());
+        mvc.perform(asyncDispatch(streamed)).andExpect(status().isOk());
+        mvc.perform(get("/api/customers")).andExpect(status().isUnauthorized());
+
+        // a refresh token is not an access token
+        mvc.perform(get("/api/me").header("Authorization", "Bearer " + refresh.getValue()))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,53 @@
+package com.crm.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+// Local stand-in for Google in tests: the token and user-info endpoints of an OAuth2 provider
+class StubIdentityProvider {
+    static final String SUBJECT = "stub-user";
+
+    private final HttpServer server;
+
+    private StubIdentityProvider(HttpServer server) {
+        this.server = server;
+    }
+
+    static StubIdentityProvider start() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.createContext("/token", ex -> json(ex,
+                    "{\"access_token\":\"stub-access-token\",\"token_type\":\"Bearer\",\"expires_in\":3600}"));
+            server.createContext("/userinfo", ex -> json(ex,
+                    "{\"sub\":\"" + SUBJECT + "\",\"name\":\"Stub User\",\"email\":\"stub@example.com\"}"));
+            server.start();
+            return new StubIdentityProvider(server);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+
+    private static void json(HttpExchange exchange, String body) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
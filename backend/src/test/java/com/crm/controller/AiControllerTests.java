@@ -0,0 +1,126 @@
+package com.crm.controller;
+
+import com.crm.model.Segment;
+import com.crm.repository.SegmentRepository;
+import com.crm.service.AiService;
+import com.crm.service.LocalSuggestions;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Batch suggestions: request validation, segment ids as objectives, and the local fallback with and without a remote
+@SpringBootTest
+@AutoConfigureMockMvc
+class AiControllerTests {
+    @Autowired MockMvc mvc;
+    @Autowired AiService aiService;
+    @Autowired SegmentRepository segmentRepository;
+
+    @AfterEach
+    void noRemote() {
+        ReflectionTestUtils.setField(aiService, "groqKey", "");
+    }
+
+    @Test
+    void invalidBatchesAreRejected() throws Exception {
+        String tooMany = "{\"items\":[" + "{\"objective\":\"Weekend sale\"},".repeat(500) + "{\"objective\":\"One more\"}]}";
+        String[][] cases = {
+                {"{}", "items must be a non-empty array"},
+                {"{\"items\":[]}", "items must be a non-empty array"},
+                {tooMany, "at most 500 items per batch"},
+                {"{\"items\":[{\"objective\":\"Weekend sale\"}],\"variants\":0}", "variants must be between 1 and"},
+                {"{\"items\":[{\"objective\":\"Weekend sale\"}],\"variants\":" + (LocalSuggestions.maxVariants() + 1) + "}", "variants must be between 1 and"},
+                {"{\"items\":[\"Weekend sale\"]}", "items must be objects"},
+                {"{\"items\":[{\"channel\":\"SMS\"}]}", "each item needs an objective or a segmentId"},
+                {"{\"items\":[{\"segmentId\":987654321}]}", "Segment not found: 987654321"},
+        };
+        for (String[] c : cases) {
+            mvc.perform(post("/api/ai/suggest-messages/batch").contentType(MediaType.APPLICATION_JSON).content(c[0]))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error", containsString(c[1])));
+        }
+    }
+
+    @Test
+    void segmentIdsResolveToSegmentNamesAndSuggestionsComeFromTheLocalGenerator() throws Exception {
+        Segment segment = new Segment();
+        segment.setName("Students discount 20%");
+        segment.setRuleJson("{}");
+        segment = segmentRepository.save(segment);
+        LocalSuggestions local = new LocalSuggestions();
+
+        mvc.perform(post("/api/ai/suggest-messages/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"variants\":4,\"items\":[{\"segmentId\":" + segment.getId() + "},{\"objective\":\"Weekend sale\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].segmentId").value(segment.getId()))
+                .andExpect(jsonPath("$.results[0].objective").value("Students discount 20%"))
+                .andExpect(jsonPath("$.results[0].suggestions").value(local.suggest("Students discount 20%", 4)))
+                .andExpect(jsonPath("$.results[1].segmentId").doesNotExist())
+                .andExpect(jsonPath("$.results[1].objective").value("Weekend sale"))
+                .andExpect(jsonPath("$.results[1].suggestions").value(local.suggest("Weekend sale", 4)));
+    }
+
+    @Test
+    void chunksRunConcurrentlyAndOnesPastTheDeadlineFallBackToLocal() throws Exception {
+        // answers every chunk after 300 ms, except the one holding the "stalled" objective, which never answers in time
+        HttpServer upstream = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        upstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        upstream.createContext("/chat", exchange -> {
+            String prompt = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            try {
+                Thread.sleep(prompt.contains("stalled") ? 10_000 : 300);
+            } catch (InterruptedException e) {
+                return;
+            }
+            byte[] reply = "{\"choices\":[{\"message\":{\"content\":\"{\\\"1\\\":[\\\"Remote hello {name}\\\"]}\"}}]}"
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, reply.length);
+            exchange.getResponseBody().write(reply);
+            exchange.close();
+        });
+        upstream.start();
+        try {
+            ReflectionTestUtils.setField(aiService, "groqKey", "test-key");
+            ReflectionTestUtils.setField(aiService, "groqUrl", "http://localhost:" + upstream.getAddress().getPort() + "/chat");
+            ReflectionTestUtils.setField(aiService, "groqBatchSize", 1);
+            ReflectionTestUtils.setField(aiService, "groqBatchConcurrency", 4);
+            ReflectionTestUtils.setField(aiService, "groqBatchTimeoutMs", 1500L);
+
+            long start = System.nanoTime();
+            mvc.perform(post("/api/ai/suggest-messages/batch").contentType(MediaType.APPLICATION_JSON)
+                            .content("{\"variants\":1,\"items\":[{\"objective\":\"Weekend sale\"},{\"objective\":\"Reward loyal high spenders\"}," +
+                                    "{\"objective\":\"stalled objective\"},{\"objective\":\"Welcome offer for new signups\"}]}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.results[0].suggestions[0]").value("Remote hello {name}"))
+                    .andExpect(jsonPath("$.results[1].suggestions[0]").value("Remote hello {name}"))
+                    .andExpect(jsonPath("$.results[2].suggestions").value(new LocalSuggestions().suggest("stalled objective", 1)))
+                    .andExpect(jsonPath("$.results[3].suggestions[0]").value("Remote hello {name}"));
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            // bounded by the 1.5 s cap; one chunk after another would wait out the stalled 10 s call
+            assertTrue(elapsedMs >= 1500 && elapsedMs < 4000, "batch took " + elapsedMs + " ms");
+        } finally {
+            ReflectionTestUtils.setField(aiService, "groqUrl", "https://api.groq.com/openai/v1/chat/completions");
+            ReflectionTestUtils.setField(aiService, "groqBatchSize", 25);
+            ReflectionTestUtils.setField(aiService, "groqBatchTimeoutMs", 15000L);
+            upstream.stop(0);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.crm.controller;
+
+import com.crm.model.Customer;
+import com.crm.model.Order;
+import com.crm.model.Segment;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.OrderRepository;
+import com.crm.repository.SegmentRepository;
+import com.crm.service.CampaignService;
+import com.crm.service.JsonArrayStreamer;
+import com.crm.service.LogArchiver;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Guards against N+1 regressions: each read endpoint must issue a fixed number of SQL statements
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ApiQueryCountTests {
+    @Autowired MockMvc mvc;
+    @Autowired EntityManagerFactory emf;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired OrderRepository orderRepository;
+    @Autowired SegmentRepository segmentRepository;
+    @Autowired CampaignService campaignService;
+    @Autowired JsonArrayStreamer jsonArrayStreamer;
+    @Autowired LogArchiver logArchiver;
+    @Autowired ObjectMapper objectMapper;
+
+    private Statistics stats;
+    private Long campaignId;
+    private Long segmentId;
+
+    @BeforeAll
+    void seed() {
+        stats = emf.unwrap(SessionFactory.class).getStatistics();
+        for (int i = 0; i < 10; i++) {
+            Customer c = new Customer();
+            c.setName("Customer " + i);
+            c.setEmail("qc" + i + "@example.com");
+            c = customerRepository.save(c);
+            for (int j = 0; j < 2; j++) {
+                Order o = new Order();
+                o.setCustomer(c);
+                o.setAmount(100.0 + j);
+                orderRepository.save(o);
+            }
+        }
+        Segment s = new Segment();
+        s.setName("Everyone");
+        s.setRuleJson("");
+        s = segmentRepository.save(s);
+        segmentId = s.getId();
+        campaignId = campaignService.createAndQueue(s.getId(), "Query count", "Hi {name}").getId();
+    }
+
+    private MvcResult fetch(String url) throws Exception {
+        MvcResult result = mvc.perform(get(url)).andReturn();
+        // streamed lists run their query in the async response body
+        if (result.getRequest().isAsyncStarted()) result = mvc.perform(asyncDispatch(result)).andReturn();
+        return result;
+    }
+
+    private long statementsFor(String url) throws Exception {
+        stats.clear();
+        assertEquals(200, fetch(url).getResponse().getStatus(), url);
+        return stats.getPrepareStatementCount();
+    }
+
+    private void assertAtMost(long expected, String url) throws Exception {
+        long actual = statementsFor(url);
+        assertTrue(actual <= expected, url + " issued " + actual + " statements, expected at most " + expected);
+    }
+
+    @Test
+    void listCampaignsIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/campaigns");
+    }
+
+    @Test
+    void listCustomersIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/customers");
+        assertAtMost(1, "/api/customers?search=customer");
+    }
+
+    @Test
+    void streamedListsAreJsonArrays() throws Exception {
+        JsonNode customers = objectMapper.readTree(fetch("/api/customers").getResponse().getContentAsString());
+        assertTrue(customers.isArray() && customers.size() >= 10, customers.toString());
+        JsonNode found = objectMapper.readTree(fetch("/api/customers?search=qc3@").getResponse().getContentAsString());
+        assertEquals(1, found.size(), found.toString());
+        JsonNode orders = objectMapper.readTree(fetch("/api/orders").getResponse().getContentAsString());
+        assertTrue(orders.isArray() && orders.size() >= 20, orders.toString());
+    }
+
+    @Test
+    void streamsBeyondTheLimitGet503() throws Exception {
+        Object slots = ReflectionTestUtils.getField(jsonArrayStreamer, "streams");
+        ReflectionTestUtils.setField(jsonArrayStreamer, "streams", new Semaphore(0));
+        try {
+            MvcResult result = fetch("/api/customers");
+            assertEquals(503, result.getResponse().getStatus());
+            assertEquals("5", result.getResponse().getHeader("Retry-After"));
+            assertTrue(result.getResponse().getContentAsString().contains("error"));
+            // a search is loaded at once and does not count against the stream limit
+            assertEquals(200, fetch("/api/customers?search=customer").getResponse().getStatus());
+        } finally {
+            ReflectionTestUtils.setField(jsonArrayStreamer, "streams", slots);
+        }
+        // a finished stream returns its permit
+        Semaphore one = new Semaphore(1);
+        ReflectionTestUtils.setField(jsonArrayStreamer, "streams", one);
+        try {
+            assertEquals(200, fetch("/api/orders").getResponse().getStatus());
+            assertEquals(1, one.availablePermits());
+        } finally {
+            ReflectionTestUtils.setField(jsonArrayStreamer, "streams", slots);
+        }
+    }
+
+    @Test
+    void listOrdersIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/orders");
+        assertAtMost(1, "/api/orders?customerId=1");
+    }
+
+    @Test
+    void listSegmentsIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/segments");
+    }
+
+    @Test
+    void campaignLogsPageIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/campaigns/" + campaignId + "/logs");
+        assertAtMost(1, "/api/campaigns/" + campaignId + "/logs?status=PENDING&limit=5");
+    }
+
+    @Test
+    void archivedCampaignLogsSayArchivedWithTheFinalCounts() throws Exception {
+        JsonNode live = objectMapper.readTree(fetch("/api/campaigns/" + campaignId + "/logs").getResponse().getContentAsString());
+        assertFalse(live.get("archived").asBoolean());
+
+        Long archivedId = campaignService.createAndQueue(segmentId, "Archived", "Hi {name}").getId();
+        logArchiver.archive(archivedId);
+        JsonNode page = objectMapper.readTree(fetch("/api/campaigns/" + archivedId + "/logs").getResponse().getContentAsString());
+        assertTrue(page.get("archived").asBoolean(), page.toString());
+        assertEquals(0, page.get("items").size());
+        assertTrue(page.get("summary").get("total").asLong() >= 10, page.toString());
+        assertTrue(page.hasNonNull("archivedAt"));
+        // keep the latest campaign live for the dashboard query count
+        campaignService.createAndQueue(segmentId, "Latest", "Hi {name}");
+    }
+
+    @Test
+    void campaignStatsIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/campaigns/" + campaignId + "/stats");
+    }
+
+    @Test
+    void dashboardStatsDoesNotScaleWithRows() throws Exception {
+        // customer count + rollup totals + campaign count + last campaign + its stats
+        assertAtMost(5, "/api/dashboard/stats");
+    }
+
+    @Test
+    void revenueSeriesIsSingleQuery() throws Exception {
+        assertAtMost(1, "/api/dashboard/revenue");
+    }
+}
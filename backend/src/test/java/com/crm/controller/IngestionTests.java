@@ -0,0 +1,169 @@
+package com.crm.controller;
+
+import com.crm.dto.OrderDto;
+import com.crm.model.Customer;
+import com.crm.repository.CustomerRepository;
+import com.crm.service.IngestionService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Idempotent ingestion: replays, key reuse with another payload, concurrent duplicates and bulk upserts
+@SpringBootTest
+@AutoConfigureMockMvc
+class IngestionTests {
+    @Autowired MockMvc mvc;
+    @Autowired IngestionService ingestionService;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManagerFactory emf;
+
+    private Customer customer(String email) {
+        Customer c = new Customer();
+        c.setName("Ingest " + email);
+        c.setEmail(email);
+        return customerRepository.save(c);
+    }
+
+    private long rollupOrders(Long customerId) {
+        Long n = jdbcTemplate.queryForObject(
+                "select coalesce(sum(order_count), 0) from order_daily_rollup where customer_id = ? and rollup_day = ?",
+                Long.class, customerId, LocalDate.now());
+        return n == null ? 0 : n;
+    }
+
+    @Test
+    void replayedKeyReturnsTheOriginalOrder() throws Exception {
+        Customer c = customer("replay@example.com");
+        String body = "{\"customerId\":" + c.getId() + ",\"amount\":42.5}";
+        String first = mvc.perform(post("/api/orders").header("Idempotency-Key", "replay-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "false"))
+                .andReturn().getResponse().getContentAsString();
+        String second = mvc.perform(post("/api/orders").header("Idempotency-Key", "replay-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, second);
+        assertEquals(1, customerRepository.findById(c.getId()).orElseThrow().getTotalVisits());
+        assertEquals(1, rollupOrders(c.getId()));
+    }
+
+    @Test
+    void reusedKeyWithAnotherPayloadIsRejected() throws Exception {
+        Customer c = customer("reuse@example.com");
+        Customer other = customer("reuse-other@example.com");
+        mvc.perform(post("/api/orders").header("Idempotency-Key", "reuse-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"customerId\":" + c.getId() + ",\"amount\":10}"))
+                .andExpect(status().isOk());
+
+        mvc.perform(post("/api/orders").header("Idempotency-Key", "reuse-1")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"customerId\":" + c.getId() + ",\"amount\":11}"))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.error").exists());
+        mvc.perform(post("/api/orders")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"customerId\":" + other.getId() + ",\"amount\":10,\"externalId\":\"reuse-1\"}"))
+                .andExpect(status().isUnprocessableEntity());
+        assertEquals(1, customerRepository.findById(c.getId()).orElseThrow().getTotalVisits());
+        assertEquals(0, customerRepository.findById(other.getId()).orElseThrow().getTotalVisits());
+    }
+
+    @Test
+    void concurrentDuplicatesInsertOnce() throws Exception {
+        Customer c = customer("concurrent@example.com");
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<IngestionService.Result<OrderDto>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return ingestionService.createOrder(c.getId(), 99.0, null, "concurrent-1");
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            Set<Long> ids = new HashSet<>();
+            for (Future<IngestionService.Result<OrderDto>> f : results) {
+                IngestionService.Result<OrderDto> r = f.get();
+                if (r.created()) created++;
+                ids.add(r.value().id());
+            }
+            assertEquals(1, created);
+            assertEquals(1, ids.size());
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from orders where customer_id = ?", Long.class, c.getId()));
+        assertEquals(1, customerRepository.findById(c.getId()).orElseThrow().getTotalVisits());
+        assertEquals(1, rollupOrders(c.getId()));
+    }
+
+    @Test
+    void bulkUpsertCountsCreatedDuplicatesAndRejected() throws Exception {
+        String batch = "[{\"name\":\"Bulk A\",\"email\":\"bulk-a@example.com\"}," +
+                "{\"name\":\"Bulk B\",\"email\":\"bulk-b@example.com\"}," +
+                "{\"name\":\"Bulk A again\",\"email\":\"bulk-a@example.com\"}," +
+                "{\"name\":\"\",\"email\":\"bulk-c@example.com\"}]";
+        mvc.perform(post("/api/customers/bulk").contentType(MediaType.APPLICATION_JSON).content(batch))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(2))
+                .andExpect(jsonPath("$.duplicates").value(1))
+                .andExpect(jsonPath("$.rejected").value(1));
+        assertEquals("Bulk A", customerRepository.findByEmail("bulk-a@example.com").orElseThrow().getName());
+
+        mvc.perform(post("/api/customers/bulk?upsert=true").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Bulk A renamed\",\"email\":\"bulk-a@example.com\"}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(0))
+                .andExpect(jsonPath("$.duplicates").value(1));
+        assertEquals("Bulk A renamed", customerRepository.findByEmail("bulk-a@example.com").orElseThrow().getName());
+    }
+
+    @Test
+    void bulkLoadLooksUpIdsOncePerChunkNotPerRow() throws Exception {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 600; i++) {
+            if (i > 0) batch.append(',');
+            batch.append("{\"name\":\"Chunk ").append(i).append("\",\"email\":\"chunk-").append(i).append("@example.com\"}");
+        }
+        batch.append(']');
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        mvc.perform(post("/api/customers/bulk").contentType(MediaType.APPLICATION_JSON).content(batch.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(600));
+
+        // the inserts go out as JDBC batches; the only ORM statements are the two email lookups (chunks of 500)
+        assertEquals(2, stats.getPrepareStatementCount());
+        assertEquals("Chunk 599", customerRepository.findByEmail("chunk-599@example.com").orElseThrow().getName());
+    }
+}
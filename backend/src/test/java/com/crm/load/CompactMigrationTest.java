@@ -0,0 +1,159 @@
+package com.crm.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs db/compact-communication-log.sql against embedded Postgres holding {@link #ROWS} hot and
+ * {@link #ROWS} archived log rows in the previous encoding (status and vendor id as varchar, failure
+ * reason as free text, with the indexes Hibernate generated for it). Checks that rows and reasons
+ * survive the conversion and prints table and index sizes before and after. The script also runs
+ * against a baseline database from before log archiving, which has no archive table yet. Runs with
+ * {@code -Pload-test}.
+ */
+@Tag("load")
+class CompactMigrationTest {
+    private static final int ROWS = 1_000_000;
+    private static final Path SCRIPT = Path.of("db", "compact-communication-log.sql");
+    private static final String STATUSES = "('SENT','FAILED','PENDING','DEAD','SUPPRESSED')";
+    private static final int BASELINE_ROWS = 200_000;
+
+    @Test
+    void compactEncodingShrinksTheLogTables() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            // one connection, so the script's begin/commit enclose the statements between them
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(postgres.getPostgresDatabase().getConnection(), true));
+            createPreviousSchema(jdbc);
+            seed(jdbc, "communication_log");
+            seed(jdbc, "communication_log_archive");
+            jdbc.execute("vacuum analyze");
+            Map<String, Object> reasonsBefore = jdbc.queryForMap(
+                    "select count(*) as failed, count(distinct failure_reason) as reasons from communication_log where failure_reason is not null");
+
+            Map<String, long[]> before = sizes(jdbc);
+            for (String sql : statements(Files.readString(SCRIPT))) jdbc.execute(sql);
+            Map<String, long[]> after = sizes(jdbc);
+
+            for (String table : before.keySet()) {
+                long[] b = before.get(table), a = after.get(table);
+                System.out.printf("%-26s table %4d MB -> %4d MB, indexes %4d MB -> %4d MB%n",
+                        table, b[0] >> 20, a[0] >> 20, b[1] >> 20, a[1] >> 20);
+                assertTrue(a[0] < b[0], table + " did not shrink");
+            }
+            // the receipt lookup index is new with the script, so part of the hot index size is added rather than converted
+            System.out.printf("of which idx_comm_log_vendor_message_id %d MB%n",
+                    jdbc.queryForObject("select pg_relation_size('idx_comm_log_vendor_message_id')", Long.class) >> 20);
+            assertEquals(ROWS, jdbc.queryForObject("select count(*) from communication_log", Long.class));
+            assertEquals(ROWS, jdbc.queryForObject("select count(*) from communication_log_archive", Long.class));
+            assertEquals(reasonsBefore.get("failed"),
+                    jdbc.queryForObject("select count(*) from communication_log where failure_reason_id is not null", Long.class));
+            assertEquals(reasonsBefore.get("reasons"), jdbc.queryForObject("select count(*) from failure_reason", Long.class));
+            assertEquals("smallint", jdbc.queryForObject(
+                    "select data_type from information_schema.columns where table_name = 'communication_log' and column_name = 'status'", String.class));
+        }
+    }
+
+    @Test
+    void baselineDatabaseWithoutArchiveIsConverted() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(postgres.getPostgresDatabase().getConnection(), true));
+            // the baseline log table: three statuses, no retry columns, no secondary indexes; foreign keys are left out
+            jdbc.execute("create table communication_log (campaign_id bigint not null, created_at timestamp(6), " +
+                    "customer_id bigint not null, id bigint generated by default as identity, updated_at timestamp(6), " +
+                    "failure_reason varchar(255), status varchar(255) check (status in ('SENT','FAILED','PENDING')), " +
+                    "vendor_message_id varchar(255), primary key (id))");
+            jdbc.update("insert into communication_log (campaign_id, created_at, customer_id, updated_at, failure_reason, status, vendor_message_id) " +
+                    "select g % 200, now(), g % 50000, now(), " +
+                    "case when g % 10 = 0 then (array['Simulated vendor failure', 'Invalid phone number'])[g / 10 % 2 + 1] end, " +
+                    "case when g % 10 = 0 then 'FAILED' when g % 10 = 1 then 'PENDING' else 'SENT' end, " +
+                    "case when g % 10 <> 1 then md5(g::text)::uuid::text end " +
+                    "from generate_series(1, ?) g", BASELINE_ROWS);
+
+            for (String sql : statements(Files.readString(SCRIPT))) jdbc.execute(sql);
+
+            assertEquals(BASELINE_ROWS, jdbc.queryForObject("select count(*) from communication_log", Long.class));
+            assertEquals(BASELINE_ROWS / 10, jdbc.queryForObject(
+                    "select count(*) from communication_log where failure_reason_id is not null and status = 2", Long.class));
+            assertEquals(2, jdbc.queryForObject("select count(*) from failure_reason", Long.class));
+            // created empty, in the encoding the application maps
+            assertEquals(0, jdbc.queryForObject("select count(*) from communication_log_archive", Long.class));
+            Map<String, String> archiveColumns = new TreeMap<>();
+            jdbc.query("select column_name, data_type from information_schema.columns where table_name = 'communication_log_archive'",
+                    rs -> { archiveColumns.put(rs.getString(1), rs.getString(2)); });
+            assertEquals(Map.of("id", "bigint", "campaign_id", "bigint", "customer_id", "bigint", "status", "smallint",
+                    "vendor_message_id", "uuid", "failure_reason_id", "smallint", "updated_at", "timestamp without time zone"), archiveColumns);
+        }
+    }
+
+    // What ddl-auto generated for the log tables before the compact encoding; foreign keys are left out
+    private static void createPreviousSchema(JdbcTemplate jdbc) {
+        jdbc.execute("create table communication_log (attempts integer, campaign_id bigint not null, created_at timestamp(6), " +
+                "customer_id bigint not null, id bigint generated by default as identity, next_attempt_at timestamp(6), " +
+                "updated_at timestamp(6), failure_reason varchar(255), status varchar(255) check (status in " + STATUSES + "), " +
+                "vendor_message_id varchar(255), primary key (id))");
+        jdbc.execute("create index idx_comm_log_campaign_status_id on communication_log (campaign_id, status, id)");
+        jdbc.execute("create index idx_comm_log_campaign_id on communication_log (campaign_id, id)");
+        jdbc.execute("create index idx_comm_log_retry_due on communication_log (status, next_attempt_at)");
+        jdbc.execute("create index idx_comm_log_created_customer on communication_log (created_at, customer_id)");
+        jdbc.execute("create table communication_log_archive (campaign_id bigint not null, customer_id bigint not null, " +
+                "id bigint not null, updated_at timestamp(6), failure_reason varchar(255), status varchar(255) check (status in " +
+                STATUSES + "), vendor_message_id varchar(255), primary key (id))");
+        jdbc.execute("create index idx_comm_log_archive_campaign on communication_log_archive (campaign_id)");
+    }
+
+    // 85% SENT, 10% FAILED, 3% DEAD, 2% PENDING across 200 campaigns; failed rows carry one of six vendor errors
+    private static void seed(JdbcTemplate jdbc, String table) {
+        boolean hot = table.equals("communication_log");
+        String status = "case when g % 100 < 85 then 'SENT' when g % 100 < 95 then 'FAILED' when g % 100 < 98 then 'DEAD' else 'PENDING' end";
+        String reason = "case when g % 100 between 85 and 97 then (array['Vendor timeout after 3000 ms', 'Invalid phone number', " +
+                "'Recipient opted out', 'Rate limited by carrier', 'Mailbox full', 'Upstream 503 Service Unavailable'])[g % 6 + 1] end";
+        String vendorId = "case when g % 100 < 98 then md5(g::text)::uuid::text end";
+        String updated = "now() - (g % 1000) * interval '1 minute'";
+        jdbc.update(hot
+                ? "insert into communication_log (attempts, campaign_id, created_at, customer_id, next_attempt_at, updated_at, failure_reason, status, vendor_message_id) " +
+                  "select 1, g % 200, " + updated + ", g % 50000, null, " + updated + ", " + reason + ", " + status + ", " + vendorId +
+                  " from generate_series(1, ?) g"
+                : "insert into communication_log_archive (id, campaign_id, customer_id, updated_at, failure_reason, status, vendor_message_id) " +
+                  "select g, g % 200, g % 50000, " + updated + ", " + reason + ", " + status + ", " + vendorId +
+                  " from generate_series(1, ?) g", ROWS);
+    }
+
+    private static Map<String, long[]> sizes(JdbcTemplate jdbc) {
+        Map<String, long[]> sizes = new TreeMap<>();
+        jdbc.query("select relname, pg_table_size(oid), pg_indexes_size(oid) from pg_class " +
+                        "where relname in ('communication_log', 'communication_log_archive')",
+                rs -> { sizes.put(rs.getString(1), new long[]{rs.getLong(2), rs.getLong(3)}); });
+        return sizes;
+    }
+
+    // The script's statements in order, without comments; each ends with ';' at the end of a line,
+    // except inside a $$-quoted block, which runs as one statement
+    private static List<String> statements(String script) {
+        List<String> out = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (String line : script.split("\n")) {
+            if (line.isBlank() || line.trim().startsWith("--")) continue;
+            current.append(line).append('\n');
+            if (line.split("\\$\\$", -1).length % 2 == 0) quoted = !quoted;
+            if (!quoted && line.trim().endsWith(";")) {
+                out.add(current.toString().trim().replaceAll(";$", ""));
+                current.setLength(0);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,32 @@
+package com.crm.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+// load-test.properties with -D overrides
+class LoadConfig {
+    private final Properties props = new Properties();
+
+    LoadConfig() {
+        try (InputStream in = LoadConfig.class.getResourceAsStream("/load-test.properties")) {
+            if (in != null) props.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("load.")) props.setProperty(key, System.getProperty(key));
+        }
+    }
+
+    int intValue(String key, int defaultValue) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? defaultValue : Integer.parseInt(v.trim());
+    }
+
+    double doubleValue(String key, double defaultValue) {
+        String v = props.getProperty(key);
+        return v == null || v.isBlank() ? defaultValue : Double.parseDouble(v.trim());
+    }
+}
@@ -0,0 +1,292 @@
+package com.crm.load;
+
+import com.crm.config.TokenService;
+import com.crm.service.ClusterNode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.AbstractDependsOnBeanFactoryPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * End-to-end load test: boots the app on a random port against an embedded Postgres and the built-in
+ * mock vendor, then drives a weighted mix of order ingest, customer search, segment previews,
+ * campaign creation, dispatch and delivery receipts from virtual-thread clients. Reports throughput
+ * and HdrHistogram latency percentiles per operation (target/load-test/) and fails on SLO violations
+ * configured in load-test.properties. The app runs on the main application.properties with the app
+ * settings of load-test.properties layered on top, authenticated with a bearer token as in production.
+ * Run with {@code ./mvnw -Pload-test test}.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties =
+        "spring.config.location=file:src/main/resources/application.properties,classpath:/load-test.properties")
+class LoadTest {
+    private static final int postgresPort = freePort();
+    private static final int vendorPort = freePort();
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final String RICH_CUSTOMERS = "{\"type\":\"rule\",\"field\":\"totalSpend\",\"operator\":\">\",\"value\":9000}";
+    private static final List<String> PREVIEW_RULES = List.of(
+            RICH_CUSTOMERS,
+            "{\"type\":\"rule\",\"field\":\"totalVisits\",\"operator\":\">=\",\"value\":5}",
+            "{\"type\":\"rule\",\"field\":\"spendInLastDays\",\"days\":30,\"operator\":\">\",\"value\":200}");
+
+    @DynamicPropertySource
+    static void environment(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> "jdbc:postgresql://localhost:" + postgresPort + "/postgres");
+        registry.add("app.vendor.mock.port", () -> vendorPort);
+        registry.add("app.vendor.url", () -> "http://localhost:" + vendorPort);
+    }
+
+    // Postgres lives as long as the (cached) application context: started before the pool and the
+    // cluster connections, stopped after they are closed
+    @TestConfiguration
+    static class Postgres {
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().setPort(postgresPort).start();
+        }
+
+        @Bean
+        static BeanFactoryPostProcessor dataSourceAfterPostgres() {
+            return new AbstractDependsOnBeanFactoryPostProcessor(DataSource.class, "embeddedPostgres") {};
+        }
+
+        @Bean
+        static BeanFactoryPostProcessor clusterNodeAfterPostgres() {
+            return new AbstractDependsOnBeanFactoryPostProcessor(ClusterNode.class, "embeddedPostgres") {};
+        }
+    }
+
+    @LocalServerPort int port;
+    @Autowired TokenService tokenService;
+
+    private record Operation(String name, int weight, double sloP99Ms, Callable<Boolean> call) {}
+
+    // latency in microseconds; errors only counted while measuring
+    private record Stats(Recorder latency, LongAdder errors) {}
+
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final ObjectMapper json = new ObjectMapper();
+    private final List<Long> customerIds = new ArrayList<>();
+    private String bearer;
+    private final Queue<Long> undispatched = new ConcurrentLinkedQueue<>();
+    private final Queue<String> awaitingReceipt = new ConcurrentLinkedQueue<>();
+    private long segmentId;
+
+    @Test
+    void mixedTrafficMeetsSlos() throws Exception {
+        LoadConfig cfg = new LoadConfig();
+        bearer = "Bearer " + tokenService.issue(TokenService.Type.ACCESS, "load-test");
+        seed(cfg.intValue("load.customers", 5000));
+
+        List<Operation> ops = List.of(
+                operation(cfg, "orderIngest", this::ingestOrder),
+                operation(cfg, "customerSearch", this::searchCustomers),
+                operation(cfg, "segmentPreview", this::previewSegment),
+                operation(cfg, "campaignCreate", this::createCampaign),
+                operation(cfg, "dispatch", this::dispatch),
+                operation(cfg, "receipt", this::receipt));
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        for (Operation op : ops) stats.put(op.name(), new Stats(new Recorder(3), new LongAdder()));
+        int[] cumulative = new int[ops.size()];
+        for (int i = 0, sum = 0; i < ops.size(); i++) cumulative[i] = sum += ops.get(i).weight();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean measuring = new AtomicBoolean(false);
+        long elapsedNanos;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < cfg.intValue("load.concurrency", 64); i++) {
+                clients.submit(() -> {
+                    while (running.get()) {
+                        Operation op = pick(ops, cumulative);
+                        long start = System.nanoTime();
+                        Boolean ok;
+                        try {
+                            ok = op.call().call();
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        if (ok == null || !measuring.get()) continue; // nothing to do yet, or warming up
+                        Stats s = stats.get(op.name());
+                        s.latency().recordValue(Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - start) / 1000));
+                        if (!ok) s.errors().increment();
+                    }
+                });
+            }
+            Thread.sleep(TimeUnit.SECONDS.toMillis(cfg.intValue("load.warmupSeconds", 10)));
+            measuring.set(true);
+            long start = System.nanoTime();
+            Thread.sleep(TimeUnit.SECONDS.toMillis(cfg.intValue("load.durationSeconds", 60)));
+            measuring.set(false);
+            elapsedNanos = System.nanoTime() - start;
+            running.set(false);
+        }
+
+        double seconds = elapsedNanos / 1e9;
+        Path dir = Path.of("target", "load-test");
+        Files.createDirectories(dir);
+        StringBuilder report = new StringBuilder(String.format("%-15s %9s %10s %9s %9s %9s %9s %7s%n",
+                "operation", "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errors"));
+        List<String> violations = new ArrayList<>();
+        long total = 0, totalErrors = 0;
+        for (Operation op : ops) {
+            Stats s = stats.get(op.name());
+            Histogram h = s.latency().getIntervalHistogram();
+            long n = h.getTotalCount();
+            long errors = s.errors().sum();
+            total += n;
+            totalErrors += errors;
+            double p99 = h.getValueAtPercentile(99) / 1000.0;
+            report.append(String.format("%-15s %9d %10.1f %9.1f %9.1f %9.1f %9.1f %7d%n", op.name(), n, n / seconds,
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(90) / 1000.0, p99, h.getMaxValue() / 1000.0, errors));
+            try (PrintStream out = new PrintStream(dir.resolve(op.name() + ".hgrm").toFile())) {
+                h.outputPercentileDistribution(out, 1000.0);
+            }
+            if (n > 0 && p99 > op.sloP99Ms()) {
+                violations.add(String.format("%s p99 %.1f ms > %.1f ms", op.name(), p99, op.sloP99Ms()));
+            }
+        }
+        double throughput = total / seconds;
+        double errorRate = total == 0 ? 0 : (double) totalErrors / total;
+        report.append(String.format("total %d requests in %.1f s: %.1f req/s, error rate %.4f%n", total, seconds, throughput, errorRate));
+        double minThroughput = cfg.doubleValue("load.slo.minThroughputPerSecond", 0);
+        double maxErrorRate = cfg.doubleValue("load.slo.maxErrorRate", 0.01);
+        if (throughput < minThroughput) violations.add(String.format("throughput %.1f req/s < %.1f", throughput, minThroughput));
+        if (errorRate > maxErrorRate) violations.add(String.format("error rate %.4f > %.4f", errorRate, maxErrorRate));
+
+        System.out.print(report);
+        Files.writeString(dir.resolve("summary.txt"), report);
+        assertTrue(violations.isEmpty(), "SLO violations:\n" + String.join("\n", violations) + "\n" + report);
+    }
+
+    // --- setup ---
+
+    private void seed(int customers) throws Exception {
+        Random random = new Random(42);
+        for (int from = 0; from < customers; from += 500) {
+            List<Map<String, Object>> batch = new ArrayList<>();
+            for (int i = from; i < Math.min(customers, from + 500); i++) {
+                batch.add(Map.of("name", "Load Customer " + i, "email", "load" + i + "@example.com",
+                        "totalSpend", random.nextInt(10_000), "totalVisits", random.nextInt(10)));
+            }
+            assertEquals(200, post("/api/customers/bulk", batch).statusCode());
+        }
+        for (JsonNode c : json.readTree(get("/api/customers").body())) customerIds.add(c.get("id").asLong());
+        HttpResponse<String> segment = post("/api/segments", Map.of("name", "Load: rich customers", "ruleJson", RICH_CUSTOMERS));
+        assertEquals(200, segment.statusCode());
+        segmentId = json.readTree(segment.body()).get("id").asLong();
+    }
+
+    private static Operation operation(LoadConfig cfg, String name, Callable<Boolean> call) {
+        return new Operation(name, cfg.intValue("load.weight." + name, 1),
+                cfg.doubleValue("load.slo.p99Ms." + name, Double.MAX_VALUE), call);
+    }
+
+    private static Operation pick(List<Operation> ops, int[] cumulative) {
+        int r = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) if (r < cumulative[i]) return ops.get(i);
+        return ops.get(ops.size() - 1);
+    }
+
+    // --- operations: true = success, false = error, null = nothing to do yet ---
+
+    private Boolean ingestOrder() throws Exception {
+        long customerId = customerIds.get(ThreadLocalRandom.current().nextInt(customerIds.size()));
+        return ok(post("/api/orders", Map.of("customerId", customerId,
+                "amount", 10 + ThreadLocalRandom.current().nextInt(500), "externalId", UUID.randomUUID().toString())));
+    }
+
+    private Boolean searchCustomers() throws Exception {
+        return ok(get("/api/customers?search=load" + ThreadLocalRandom.current().nextInt(1000)));
+    }
+
+    private Boolean previewSegment() throws Exception {
+        String rule = PREVIEW_RULES.get(ThreadLocalRandom.current().nextInt(PREVIEW_RULES.size()));
+        return ok(post("/api/segments/preview", Map.of("ruleJson", rule, "approximate", ThreadLocalRandom.current().nextBoolean())));
+    }
+
+    private Boolean createCampaign() throws Exception {
+        HttpResponse<String> res = post("/api/campaigns", Map.of("segmentId", segmentId, "name", "Load campaign", "message", "Hi {name}"));
+        if (!ok(res)) return false;
+        undispatched.add(json.readTree(res.body()).get("id").asLong());
+        return true;
+    }
+
+    private Boolean dispatch() throws Exception {
+        Long campaignId = undispatched.poll();
+        if (campaignId == null) return null;
+        if (!ok(post("/api/vendor/send/" + campaignId, Map.of()))) return false;
+        HttpResponse<String> logs = get("/api/campaigns/" + campaignId + "/logs?limit=50");
+        if (!ok(logs)) return false;
+        for (JsonNode item : json.readTree(logs.body()).get("items")) {
+            if (item.hasNonNull("vendorMessageId")) awaitingReceipt.add(item.get("vendorMessageId").asText());
+        }
+        return true;
+    }
+
+    private Boolean receipt() throws Exception {
+        String vendorMessageId = awaitingReceipt.poll();
+        if (vendorMessageId == null) return null;
+        return ok(post("/api/vendor/receipt", Map.of("vendorMessageId", vendorMessageId, "status", "SENT")));
+    }
+
+    // --- http ---
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .header("Authorization", bearer).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                        .header("Content-Type", "application/json")
+                        .header("Authorization", bearer)
+                        .POST(HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static boolean ok(HttpResponse<?> response) {
+        return response.statusCode() / 100 == 2;
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.crm.load;
+
+import com.crm.CrmApplication;
+import com.crm.repository.CustomerRepository;
+import com.crm.service.SegmentEvaluator;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Heap stays flat as the customer table grows: segment evaluation (with and without order-history
+ * fields, each customer having a daily rollup row) and the streamed customer list run in a child JVM
+ * capped at {@link #HEAP} against {@link #CUSTOMERS} customers on embedded Postgres.
+ * As a control, loading the same table as entities must fail in that heap. Child output goes to
+ * {@code target/load-test/scan-memory-*.log}. Runs with {@code -Pload-test}.
+ */
+@Tag("load")
+class ScanMemoryTest {
+    private static final String HEAP = "-Xmx160m";
+    private static final int CUSTOMERS = 2_000_000;
+    private static final String EVERYONE = "{\"type\":\"rule\",\"field\":\"totalSpend\",\"operator\":\">=\",\"value\":0}";
+    // order-history rule every seeded customer matches: their rollup day is within the last 30 days
+    private static final String ORDERED_RECENTLY = "{\"type\":\"group\",\"op\":\"AND\",\"children\":[" +
+            "{\"type\":\"rule\",\"field\":\"orderCount\",\"operator\":\">=\",\"value\":1}," +
+            "{\"type\":\"rule\",\"field\":\"spendInLastDays\",\"days\":30,\"operator\":\">=\",\"value\":0}]}";
+
+    @Test
+    void scansFitInAConstrainedHeap() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.start()) {
+            String url = postgres.getJdbcUrl("postgres", "postgres");
+            assertEquals(0, child("seed", url), "seeding failed");
+            assertEquals(0, child("scan", url), "streaming scans ran out of memory in " + HEAP);
+            assertNotEquals(0, child("entities", url), "control: loading every customer entity should not fit in " + HEAP);
+        }
+    }
+
+    private static int child(String mode, String url) throws Exception {
+        List<String> cmd = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                HEAP, "-XX:+ExitOnOutOfMemoryError",
+                "-cp", System.getProperty("java.class.path"),
+                ScanMemoryTest.class.getName(), mode, url));
+        Path dir = Path.of("target", "load-test");
+        Files.createDirectories(dir);
+        Path out = dir.resolve("scan-memory-" + mode + ".log");
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).redirectOutput(out.toFile()).start();
+        if (!p.waitFor(10, TimeUnit.MINUTES)) {
+            p.destroyForcibly();
+            throw new AssertionError(mode + " did not finish");
+        }
+        // the child's summary line (and any OutOfMemoryError) end up in the test output
+        for (String line : Files.readAllLines(out)) {
+            if (line.startsWith(mode + ":") || line.contains("OutOfMemoryError")) System.out.println(line);
+        }
+        return p.exitValue();
+    }
+
+    // Child JVM entry point: seed | scan | entities
+    public static void main(String[] args) throws Exception {
+        String mode = args[0];
+        try (ConfigurableApplicationContext ctx = new SpringApplicationBuilder(CrmApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + args[1],
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=postgres",
+                "--spring.jpa.hibernate.ddl-auto=" + ("seed".equals(mode) ? "create" : "none"),
+                "--spring.jpa.show-sql=false",
+                "--spring.jpa.properties.hibernate.generate_statistics=false",
+                "--logging.level.root=WARN",
+                "--app.sample.size=1000",
+                "--app.dispatch.enabled=false",
+                "--app.retry.enabled=false",
+                "--app.archive.enabled=false")) {
+            switch (mode) {
+                case "seed" -> {
+                    JdbcTemplate jdbc = ctx.getBean(JdbcTemplate.class);
+                    jdbc.update("insert into customers (name, email, total_visits, total_spend, last_active_at, created_at) " +
+                            "select 'Customer number ' || g, 'customer' || g || '@memory.test', g % 20, g % 5000, " +
+                            "now() - (g % 365) * interval '1 day', now() from generate_series(1, ?) g", CUSTOMERS);
+                    jdbc.update("insert into order_daily_rollup (customer_id, rollup_day, order_count, revenue) " +
+                            "select g, current_date - (g % 30), 1 + g % 3, g % 500 from generate_series(1, ?) g", CUSTOMERS);
+                    jdbc.execute("analyze customers");
+                    jdbc.execute("analyze order_daily_rollup");
+                }
+                case "scan" -> {
+                    SegmentEvaluator evaluator = ctx.getBean(SegmentEvaluator.class);
+                    long matched = evaluator.matchingIds(EVERYONE).length;
+                    long ordered = evaluator.matchingIds(ORDERED_RECENTLY).length;
+                    int port = ((WebServerApplicationContext) ctx).getWebServer().getPort();
+                    HttpResponse<InputStream> res = HttpClient.newHttpClient().send(
+                            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/customers")).build(),
+                            HttpResponse.BodyHandlers.ofInputStream());
+                    // count rows with a streaming parser, so the client side stays flat too
+                    long rows = 0;
+                    long bytes;
+                    try (CountingInputStream in = new CountingInputStream(res.body());
+                         JsonParser parser = new JsonFactory().createParser(in)) {
+                        if (parser.nextToken() == JsonToken.START_ARRAY) {
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                parser.skipChildren();
+                                rows++;
+                            }
+                        }
+                        bytes = in.count;
+                    }
+                    Runtime rt = Runtime.getRuntime();
+                    System.out.printf("scan: matched %d customers (%d by order history), streamed %d rows (%d MB) of /api/customers (status %d), heap used %d MB of %d MB%n",
+                            matched, ordered, rows, bytes >> 20, res.statusCode(), (rt.totalMemory() - rt.freeMemory()) >> 20, rt.maxMemory() >> 20);
+                    if (matched < CUSTOMERS || ordered != CUSTOMERS || rows < CUSTOMERS || res.statusCode() != 200) System.exit(2);
+                }
+                case "entities" -> System.out.println("entities: loaded " + ctx.getBean(CustomerRepository.class).findAll().size());
+                default -> throw new IllegalArgumentException(mode);
+            }
+        }
+        System.exit(0);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+}
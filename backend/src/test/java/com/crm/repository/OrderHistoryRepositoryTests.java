@@ -0,0 +1,39 @@
+package com.crm.repository;
+
+import com.crm.dto.OrderStats;
+import com.crm.model.Customer;
+import com.crm.service.IngestionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class OrderHistoryRepositoryTests {
+    @Autowired OrderHistoryRepository orderHistoryRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired IngestionService ingestionService;
+
+    @Test
+    void windowOfNDaysEndsTodayAndSpansNDays() {
+        Customer c = new Customer();
+        c.setName("Window");
+        c.setEmail("window@example.com");
+        c = customerRepository.save(c);
+        LocalDate today = LocalDate.now();
+        ingestionService.createOrder(c.getId(), 10.0, today.atTime(9, 0), null);
+        ingestionService.createOrder(c.getId(), 20.0, today.minusDays(1).atTime(9, 0), null);
+        ingestionService.createOrder(c.getId(), 40.0, today.minusDays(7).atTime(9, 0), null);
+
+        OrderStats stats = orderHistoryRepository.aggregate(List.of(1, 2, 7, 8), List.of(c.getId())).get(c.getId());
+        assertEquals(1, stats.ordersIn(0));
+        assertEquals(2, stats.ordersIn(1));
+        assertEquals(2, stats.ordersIn(2));
+        assertEquals(3, stats.ordersIn(3));
+        assertEquals(30.0, stats.spendIn(1));
+    }
+}
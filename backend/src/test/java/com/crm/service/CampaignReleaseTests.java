@@ -0,0 +1,53 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.Segment;
+import com.crm.repository.CampaignRepository;
+import com.crm.repository.SegmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// releaseToScheduler changes a loaded entity and relies on its transaction to flush it
+@SpringBootTest
+class CampaignReleaseTests {
+    @Autowired CampaignService campaignService;
+    @Autowired CampaignRepository campaignRepository;
+    @Autowired SegmentRepository segmentRepository;
+
+    @Test
+    void releasedCampaignIsPersistedAsDueNow() {
+        Segment s = new Segment();
+        s.setName("Release");
+        s.setRuleJson("");
+        s = segmentRepository.save(s);
+        Campaign c = campaignService.createAndQueue(s.getId(), "Release", "Hi {name}");
+        c.setScheduledAt(LocalDateTime.now().plusDays(1));
+        c.setDispatchedAt(LocalDateTime.now());
+        campaignRepository.save(c);
+
+        assertTrue(campaignService.releaseToScheduler(c.getId()));
+
+        Campaign stored = campaignRepository.findById(c.getId()).orElseThrow();
+        assertFalse(stored.getScheduledAt().isAfter(LocalDateTime.now()));
+        assertNull(stored.getDispatchedAt());
+    }
+
+    @Test
+    void campaignWithoutWindowIsNotReleased() {
+        Segment s = new Segment();
+        s.setName("No window");
+        s.setRuleJson("");
+        s = segmentRepository.save(s);
+        Campaign c = campaignService.createAndQueue(s.getId(), "No window", "Hi {name}");
+
+        assertFalse(campaignService.releaseToScheduler(c.getId()));
+        assertNull(campaignRepository.findById(c.getId()).orElseThrow().getScheduledAt());
+    }
+}
@@ -0,0 +1,97 @@
+package com.crm.service;
+
+import com.crm.dto.AudienceEstimate;
+import com.crm.dto.CustomerRuleRow;
+import com.crm.model.Customer;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.CustomerScanRepository;
+import com.crm.repository.OrderHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerSampleTests {
+    private static final String EVERYONE = "{\"type\":\"rule\",\"field\":\"totalSpend\",\"operator\":\">=\",\"value\":0}";
+
+    private CustomerRepository customers;
+    private CustomerScanRepository scans;
+    private CustomerSample sample;
+
+    @BeforeEach
+    void setUp() {
+        customers = mock(CustomerRepository.class);
+        scans = mock(CustomerScanRepository.class);
+        sample = new CustomerSample(customers, scans, mock(OrderHistoryRepository.class), mock(ClusterEvents.class), 100, 10);
+        // the table holds ids 1..3; the scan reads them
+        doAnswer(inv -> {
+            Consumer<CustomerRuleRow> callback = inv.getArgument(3);
+            for (long id = inv.getArgument(0); id <= (long) inv.getArgument(1); id++) callback.accept(row(id));
+            return null;
+        }).when(scans).scanRuleRows(anyLong(), anyLong(), any(), any());
+    }
+
+    private static CustomerRuleRow row(long id) {
+        return new CustomerRuleRow(id, 10.0, 1, null);
+    }
+
+    private static Customer customer(long id) {
+        Customer c = new Customer();
+        c.setId(id);
+        c.setTotalSpend(10.0);
+        c.setTotalVisits(1);
+        return c;
+    }
+
+    private long population() {
+        AudienceEstimate e = sample.estimate(EVERYONE);
+        return e.population();
+    }
+
+    @Test
+    void insertBeforeTheBoundsAreReadIsCountedOnce() {
+        // customer 3 is inserted after the sample was cleared but before the rebuild read max(id)
+        when(customers.idBounds()).thenAnswer(inv -> {
+            sample.onInsert(customer(3));
+            return List.<Object[]>of(new Object[]{1L, 3L});
+        });
+        sample.rebuild();
+        assertEquals(3, population());
+    }
+
+    @Test
+    void insertAboveTheScannedRangeIsCounted() {
+        when(customers.idBounds()).thenAnswer(inv -> {
+            sample.onInsert(customer(4));
+            return List.<Object[]>of(new Object[]{1L, 3L});
+        });
+        sample.rebuild();
+        assertEquals(4, population());
+        sample.onInsert(customer(5));
+        assertEquals(5, population());
+    }
+
+    @Test
+    void failedBuildIsRetried() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        when(customers.idBounds()).thenAnswer(inv -> {
+            if (calls.incrementAndGet() < 3) throw new IllegalStateException("database unavailable");
+            return List.<Object[]>of(new Object[]{1L, 3L});
+        });
+        sample.buildInBackground();
+        for (int i = 0; i < 200 && !sample.isReady(); i++) Thread.sleep(25);
+        assertTrue(sample.isReady());
+        assertEquals(3, calls.get());
+        assertEquals(3, population());
+    }
+}
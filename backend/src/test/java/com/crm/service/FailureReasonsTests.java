@@ -0,0 +1,50 @@
+package com.crm.service;
+
+import com.crm.model.FailureReason;
+import com.crm.repository.FailureReasonRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Renamed reasons: the earlier row keeps its id under the new text, and the earlier text still resolves to it
+@SpringBootTest
+class FailureReasonsTests {
+    @Autowired FailureReasonRepository repository;
+    @Autowired PlatformTransactionManager txManager;
+
+    @Test
+    void renameKeepsTheIdUnlessTheNewTextAlreadyHasARow() {
+        TransactionTemplate tx = new TransactionTemplate(txManager);
+        short id = tx.execute(status -> {
+            repository.insertIfAbsent("Old reason");
+            return repository.findByText("Old reason").orElseThrow().getId();
+        });
+
+        assertEquals(1, (int) tx.execute(status -> repository.rename("Old reason", "New reason")));
+        assertEquals(id, repository.findByText("New reason").orElseThrow().getId());
+        assertTrue(repository.findByText("Old reason").isEmpty());
+
+        // a second row under the earlier text is left alone rather than clashing with the renamed one
+        tx.execute(status -> repository.insertIfAbsent("Old reason"));
+        assertEquals(0, (int) tx.execute(status -> repository.rename("Old reason", "New reason")));
+        assertEquals(id, repository.findByText("New reason").orElseThrow().getId());
+    }
+
+    @Test
+    void theEarlierVendorFailureTextResolvesToTheCurrentReason() {
+        FailureReasons failureReasons = new FailureReasons(repository, txManager);
+
+        short earlier = failureReasons.of("Simulated vendor failure").getId();
+        short current = failureReasons.of(FailureReasons.VENDOR_FAILURE).getId();
+
+        assertEquals(current, earlier);
+        FailureReason row = repository.findById(current).orElseThrow();
+        assertEquals(FailureReasons.VENDOR_FAILURE, row.getText());
+        assertTrue(repository.findByText("Simulated vendor failure").isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.model.Customer;
+import com.crm.model.Segment;
+import com.crm.repository.CommunicationLogRepository;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.SegmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class FrequencyCapTests {
+    @Autowired FrequencyCapService frequencyCapService;
+    @Autowired CampaignService campaignService;
+    @Autowired MessageDispatcher messageDispatcher;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired SegmentRepository segmentRepository;
+    @Autowired CommunicationLogRepository logRepository;
+
+    @Test
+    void onlyAttemptedMessagesCountAndTheCapIsCheckedAgainAtRelease() {
+        Customer c = new Customer();
+        c.setName("Capped");
+        c.setEmail("freq-cap@example.com");
+        c = customerRepository.save(c);
+        Segment s = new Segment();
+        s.setName("Frequency cap");
+        s.setRuleJson("");
+        s = segmentRepository.save(s);
+
+        ReflectionTestUtils.setField(frequencyCapService, "maxMessages", 1L);
+        try {
+            Campaign first = campaignService.createAndQueue(s.getId(), "First", "Hi {name}");
+            // the first campaign's message is only queued, so it does not count yet
+            Campaign second = campaignService.createAndQueue(s.getId(), "Second", "Hi {name}");
+            CommunicationLog firstLog = logFor(first, c);
+            CommunicationLog secondLog = logFor(second, c);
+            assertEquals(CommunicationLog.Status.PENDING, firstLog.getStatus());
+            assertEquals(CommunicationLog.Status.PENDING, secondLog.getStatus());
+
+            messageDispatcher.send(first, frequencyCapService.dropCapped(List.of(firstLog)));
+            assertEquals(CommunicationLog.Status.SENT, logRepository.findById(firstLog.getId()).orElseThrow().getStatus());
+
+            // released after the first went out: the customer is now at the cap
+            assertTrue(frequencyCapService.dropCapped(List.of(secondLog)).isEmpty());
+            assertEquals(CommunicationLog.Status.SUPPRESSED, logRepository.findById(secondLog.getId()).orElseThrow().getStatus());
+        } finally {
+            ReflectionTestUtils.setField(frequencyCapService, "maxMessages", 0L);
+        }
+    }
+
+    @Test
+    void largeReleasesCheckTheCapInChunksOfRecipients() {
+        CommunicationLogRepository repository = mock(CommunicationLogRepository.class);
+        List<Integer> queried = new ArrayList<>();
+        when(repository.findCustomersAtCap(anyCollection(), any(), anyCollection(), anyLong())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            queried.add(ids.size());
+            return ids.contains(40_000L) ? List.of(40_000L) : List.of();
+        });
+        FrequencyCapService service = new FrequencyCapService(repository, mock(FailureReasons.class));
+        ReflectionTestUtils.setField(service, "maxMessages", 1L);
+        List<CommunicationLog> pending = new ArrayList<>();
+        for (long id = 1; id <= 40_000; id++) {
+            Customer c = new Customer();
+            c.setId(id);
+            CommunicationLog l = new CommunicationLog();
+            l.setCustomer(c);
+            pending.add(l);
+        }
+
+        List<CommunicationLog> send = service.dropCapped(pending);
+
+        // one statement per chunk keeps each well under Postgres' 32767 bind parameters
+        assertEquals(40, queried.size());
+        assertTrue(queried.stream().allMatch(n -> n <= 1000));
+        assertEquals(39_999, send.size());
+        assertEquals(CommunicationLog.Status.SUPPRESSED, pending.get(39_999).getStatus());
+    }
+
+    private CommunicationLog logFor(Campaign campaign, Customer customer) {
+        return logRepository.findByCampaignIdAndStatus(campaign.getId(), CommunicationLog.Status.PENDING).stream()
+                .filter(l -> l.getCustomer().getId().equals(customer.getId()))
+                .findFirst().orElseThrow();
+    }
+}
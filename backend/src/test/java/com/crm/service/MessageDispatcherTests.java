@@ -0,0 +1,179 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.model.Customer;
+import com.crm.model.FailureReason;
+import com.crm.repository.CommunicationLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageDispatcherTests {
+    private CommunicationLogRepository logRepository;
+    private RetryPolicy retryPolicy;
+    private Campaign campaign;
+
+    @BeforeEach
+    void setUp() {
+        logRepository = mock(CommunicationLogRepository.class);
+        FailureReasons failureReasons = mock(FailureReasons.class);
+        when(failureReasons.of(anyString())).thenAnswer(inv -> new FailureReason(inv.getArgument(0)));
+        retryPolicy = new RetryPolicy(failureReasons);
+        ReflectionTestUtils.setField(retryPolicy, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryPolicy, "baseDelayMs", 1000L);
+        ReflectionTestUtils.setField(retryPolicy, "maxDelayMs", 8000L);
+        campaign = new Campaign();
+        campaign.setChannel(Campaign.Channel.SMS);
+        campaign.setMessage("Hi {name}");
+    }
+
+    private MessageDispatcher dispatcher(VendorAdapter adapter) {
+        return new MessageDispatcher(logRepository, retryPolicy, List.of(adapter));
+    }
+
+    private static List<CommunicationLog> logs(int n) {
+        List<CommunicationLog> logs = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Customer c = new Customer();
+            c.setId((long) i + 1);
+            c.setName("Customer " + i);
+            c.setEmail("dispatch" + i + "@example.com");
+            CommunicationLog l = new CommunicationLog();
+            l.setCustomer(c);
+            logs.add(l);
+        }
+        return logs;
+    }
+
+    private static String reason(CommunicationLog l) {
+        return l.getFailureReason() == null ? null : l.getFailureReason().getText();
+    }
+
+    // Records what the dispatcher hands the provider and what it answers, and how many calls overlap
+    private static class RecordingAdapter implements VendorAdapter {
+        final VendorAdapter delegate;
+        final List<List<OutboundMessage>> batches = new CopyOnWriteArrayList<>();
+        final Map<UUID, Boolean> delivered = new ConcurrentHashMap<>();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        RecordingAdapter(VendorAdapter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override public Campaign.Channel channel() { return delegate.channel(); }
+        @Override public int maxBatchSize() { return delegate.maxBatchSize(); }
+        @Override public int maxConcurrency() { return delegate.maxConcurrency(); }
+
+        @Override
+        public CompletableFuture<List<SendResult>> sendBatch(List<OutboundMessage> batch) {
+            batches.add(List.copyOf(batch));
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return delegate.sendBatch(batch).whenComplete((results, error) -> {
+                if (results != null) results.forEach(r -> delivered.put(r.vendorMessageId(), r.delivered()));
+                inFlight.decrementAndGet();
+            });
+        }
+    }
+
+    @Test
+    void logsAreCutIntoProviderSizedBatches() {
+        RecordingAdapter adapter = new RecordingAdapter(new SimulatedVendorAdapter(Campaign.Channel.SMS, 10, 4, 1.0, 0.0, 0, 0));
+        List<CommunicationLog> logs = logs(25);
+
+        dispatcher(adapter).send(campaign, logs);
+
+        assertEquals(List.of(10, 10, 5), adapter.batches.stream().map(List::size).toList());
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < logs.size(); i++) {
+            CommunicationLog l = logs.get(i);
+            assertEquals(CommunicationLog.Status.SENT, l.getStatus());
+            assertEquals(1, l.getAttempts());
+            assertNull(l.getNextAttemptAt());
+            assertTrue(ids.add(l.getVendorMessageId()));
+            VendorAdapter.OutboundMessage m = adapter.batches.get(i / 10).get(i % 10);
+            assertEquals(l.getVendorMessageId(), m.vendorMessageId());
+            assertEquals("Hi Customer " + i, m.body());
+        }
+        verify(logRepository).saveAll(logs);
+    }
+
+    @Test
+    void eachMessageGetsItsOwnOutcome() {
+        RecordingAdapter adapter = new RecordingAdapter(new SimulatedVendorAdapter(Campaign.Channel.SMS, 7, 2, 0.5, 0.0, 0, 0));
+        List<CommunicationLog> logs = logs(50);
+
+        dispatcher(adapter).send(campaign, logs);
+
+        int sent = 0;
+        for (CommunicationLog l : logs) {
+            boolean delivered = adapter.delivered.get(l.getVendorMessageId());
+            if (delivered) {
+                sent++;
+                assertEquals(CommunicationLog.Status.SENT, l.getStatus());
+                assertNull(reason(l));
+            } else {
+                assertEquals(CommunicationLog.Status.FAILED, l.getStatus());
+                assertEquals(FailureReasons.VENDOR_FAILURE, reason(l));
+                assertNotNull(l.getNextAttemptAt());
+            }
+        }
+        assertTrue(sent > 0 && sent < logs.size(), "expected a mix of outcomes, got " + sent + " sent");
+    }
+
+    @Test
+    void failedCallFailsEveryMessageOfItsBatchAndDeadLettersAtTheLimit() {
+        RecordingAdapter adapter = new RecordingAdapter(new SimulatedVendorAdapter(Campaign.Channel.SMS, 10, 2, 1.0, 1.0, 0, 0));
+        List<CommunicationLog> logs = logs(15);
+        logs.get(0).setAttempts(2); // this send is its third and last attempt
+
+        dispatcher(adapter).send(campaign, logs);
+
+        assertEquals(2, adapter.batches.size());
+        assertEquals(CommunicationLog.Status.DEAD, logs.get(0).getStatus());
+        assertNull(logs.get(0).getNextAttemptAt());
+        for (CommunicationLog l : logs.subList(1, logs.size())) {
+            assertEquals(CommunicationLog.Status.FAILED, l.getStatus());
+            assertEquals(FailureReasons.VENDOR_ERROR, reason(l));
+            assertNotNull(l.getNextAttemptAt());
+        }
+        verify(logRepository).saveAll(logs);
+    }
+
+    @Test
+    void batchesInFlightStayWithinTheChannelLimit() {
+        RecordingAdapter adapter = new RecordingAdapter(new SimulatedVendorAdapter(Campaign.Channel.SMS, 5, 2, 1.0, 0.0, 50, 0));
+        List<CommunicationLog> logs = logs(50);
+
+        long start = System.nanoTime();
+        dispatcher(adapter).send(campaign, logs);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(10, adapter.batches.size());
+        assertEquals(2, adapter.maxInFlight.get());
+        // ten 50 ms calls, two at a time
+        assertTrue(elapsedMs >= 250, "finished in " + elapsedMs + " ms");
+        assertTrue(logs.stream().allMatch(l -> l.getStatus() == CommunicationLog.Status.SENT));
+    }
+}
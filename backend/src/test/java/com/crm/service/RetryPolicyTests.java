@@ -0,0 +1,77 @@
+package com.crm.service;
+
+import com.crm.model.CommunicationLog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class RetryPolicyTests {
+    private RetryPolicy policy;
+
+    @BeforeEach
+    void setUp() {
+        policy = new RetryPolicy(mock(FailureReasons.class));
+        ReflectionTestUtils.setField(policy, "maxAttempts", 5);
+        ReflectionTestUtils.setField(policy, "baseDelayMs", 1000L);
+        ReflectionTestUtils.setField(policy, "maxDelayMs", 8000L);
+    }
+
+    @Test
+    void delayDoublesPerAttemptUpToTheCap() {
+        // equal jitter: the delay lies between half and all of min(max, base * 2^(attempts-1))
+        long[] exp = {1000, 1000, 2000, 4000, 8000, 8000, 8000};
+        for (int attempts = 0; attempts < exp.length; attempts++) {
+            for (int i = 0; i < 200; i++) {
+                long d = policy.delayMs(attempts);
+                assertTrue(d >= exp[attempts] / 2 && d <= exp[attempts], "attempt " + attempts + " delay " + d);
+            }
+        }
+    }
+
+    @Test
+    void delayIsJittered() {
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 100; i++) seen.add(policy.delayMs(3));
+        assertTrue(seen.size() > 50, "only " + seen.size() + " distinct delays");
+    }
+
+    @Test
+    void failureBeforeMaxAttemptsSchedulesRetry() {
+        CommunicationLog log = new CommunicationLog();
+        log.setAttempts(2);
+        LocalDateTime before = LocalDateTime.now();
+        policy.onFailure(log, FailureReasons.VENDOR_FAILURE);
+        assertEquals(CommunicationLog.Status.FAILED, log.getStatus());
+        assertTrue(!log.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertTrue(!log.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(2)));
+    }
+
+    @Test
+    void failureAtMaxAttemptsDeadLetters() {
+        CommunicationLog log = new CommunicationLog();
+        log.setAttempts(5);
+        log.setNextAttemptAt(LocalDateTime.now());
+        policy.onFailure(log, FailureReasons.VENDOR_FAILURE);
+        assertEquals(CommunicationLog.Status.DEAD, log.getStatus());
+        assertNull(log.getNextAttemptAt());
+    }
+
+    @Test
+    void legacyRowWithoutAttemptsIsRetried() {
+        CommunicationLog log = new CommunicationLog();
+        log.setAttempts(null);
+        policy.onFailure(log, FailureReasons.VENDOR_FAILURE);
+        assertEquals(CommunicationLog.Status.FAILED, log.getStatus());
+        assertNotNull(log.getNextAttemptAt());
+    }
+}
@@ -0,0 +1,56 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.model.Customer;
+import com.crm.model.Segment;
+import com.crm.repository.CommunicationLogRepository;
+import com.crm.repository.CustomerRepository;
+import com.crm.repository.SegmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class RetrySchedulerTests {
+    @Autowired RetryScheduler retryScheduler;
+    @Autowired CampaignService campaignService;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired SegmentRepository segmentRepository;
+    @Autowired CommunicationLogRepository logRepository;
+
+    @Test
+    void legacyFailureWithoutNextAttemptIsRetried() {
+        Customer c = new Customer();
+        c.setName("Legacy");
+        c.setEmail("legacy-retry@example.com");
+        c = customerRepository.save(c);
+        Segment s = new Segment();
+        s.setName("Legacy retry");
+        s.setRuleJson("");
+        s = segmentRepository.save(s);
+        Campaign campaign = campaignService.createAndQueue(s.getId(), "Legacy retry", "Hi {name}");
+
+        // a row as written before retries were scheduled: FAILED, no attempt count, no next attempt
+        CommunicationLog legacy = new CommunicationLog();
+        legacy.setCampaign(campaign);
+        legacy.setCustomer(c);
+        legacy.setStatus(CommunicationLog.Status.FAILED);
+        legacy.setAttempts(null);
+        legacy = logRepository.save(legacy);
+
+        ReflectionTestUtils.setField(retryScheduler, "enabled", true);
+        try {
+            retryScheduler.tick();
+        } finally {
+            ReflectionTestUtils.setField(retryScheduler, "enabled", false);
+        }
+
+        CommunicationLog after = logRepository.findById(legacy.getId()).orElseThrow();
+        assertEquals(CommunicationLog.Status.SENT, after.getStatus());
+        assertEquals(1, after.getAttempts());
+    }
+}
@@ -0,0 +1,91 @@
+package com.crm.service;
+
+import com.crm.model.Campaign;
+import com.crm.model.CommunicationLog;
+import com.crm.model.Customer;
+import com.crm.repository.CampaignRepository;
+import com.crm.repository.CommunicationLogRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SendSchedulerTests {
+
+    @Test
+    void recipientsSuppressedByTheCapDoNotUseUpTheCampaignRate() {
+        Campaign campaign = new Campaign();
+        campaign.setId(7L);
+        campaign.setScheduledAt(LocalDateTime.now().minusMinutes(1));
+        campaign.setMaxPerSecond(2);
+
+        Deque<CommunicationLog> pending = new ArrayDeque<>();
+        for (long id = 1; id <= 10; id++) {
+            Customer customer = new Customer();
+            customer.setId(id);
+            CommunicationLog l = new CommunicationLog();
+            l.setId(id);
+            l.setCustomer(customer);
+            l.setStatus(CommunicationLog.Status.PENDING);
+            pending.add(l);
+        }
+        Set<Long> capped = Set.of(1L, 2L, 3L, 5L);
+
+        CampaignRepository campaignRepository = mock(CampaignRepository.class);
+        when(campaignRepository.findByScheduledAtLessThanEqualAndDispatchedAtIsNullOrderByScheduledAt(any()))
+                .thenReturn(List.of(campaign));
+        CommunicationLogRepository logRepository = mock(CommunicationLogRepository.class);
+        when(logRepository.findByCampaignIdAndStatusOrderById(eq(7L), eq(CommunicationLog.Status.PENDING), any(Limit.class)))
+                .thenAnswer(inv -> {
+                    List<CommunicationLog> batch = new ArrayList<>();
+                    int max = ((Limit) inv.getArgument(2)).max();
+                    while (batch.size() < max && !pending.isEmpty()) batch.add(pending.poll());
+                    return batch;
+                });
+        FrequencyCapService frequencyCapService = mock(FrequencyCapService.class);
+        when(frequencyCapService.dropCapped(anyList())).thenAnswer(inv -> {
+            List<CommunicationLog> send = new ArrayList<>();
+            for (CommunicationLog l : inv.<List<CommunicationLog>>getArgument(0)) {
+                if (capped.contains(l.getCustomer().getId())) l.setStatus(CommunicationLog.Status.SUPPRESSED);
+                else send.add(l);
+            }
+            return send;
+        });
+        MessageDispatcher messageDispatcher = mock(MessageDispatcher.class);
+        List<Long> sent = new ArrayList<>();
+        doAnswer(inv -> {
+            for (CommunicationLog l : inv.<List<CommunicationLog>>getArgument(1)) sent.add(l.getId());
+            return null;
+        }).when(messageDispatcher).send(eq(campaign), anyList());
+        LeaderElection leaderElection = mock(LeaderElection.class);
+        when(leaderElection.isLeader(anyString())).thenReturn(true);
+
+        SendScheduler scheduler = new SendScheduler(campaignRepository, logRepository, messageDispatcher,
+                frequencyCapService, leaderElection, mock(ClusterEvents.class), 200);
+        ReflectionTestUtils.setField(scheduler, "enabled", true);
+        ReflectionTestUtils.setField(scheduler, "quantum", 50);
+
+        scheduler.tick();
+
+        // the campaign's two tokens go to the first two customers below the cap; the suppressed ones are skipped over
+        assertEquals(List.of(4L, 6L), sent);
+        assertEquals(List.of(7L, 8L, 9L, 10L), pending.stream().map(CommunicationLog::getId).toList());
+        assertNull(campaign.getDispatchedAt());
+    }
+}